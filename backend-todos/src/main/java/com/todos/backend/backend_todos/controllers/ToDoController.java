@@ -1,13 +1,29 @@
 package com.todos.backend.backend_todos.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.todos.backend.backend_todos.dto.NewToDo;
+import com.todos.backend.backend_todos.dto.ToDoBatchResult;
+import com.todos.backend.backend_todos.dto.ToDoCursorPage;
+import com.todos.backend.backend_todos.dto.ToDoFileFormat;
+import com.todos.backend.backend_todos.dto.ToDoImportResult;
 import com.todos.backend.backend_todos.dto.ToDoStatistics;
+import com.todos.backend.backend_todos.dto.ToDoTotal;
 import com.todos.backend.backend_todos.exceptions.ToDoNotFoundException;
 import com.todos.backend.backend_todos.models.Priority;
 import com.todos.backend.backend_todos.models.ToDo;
@@ -17,12 +33,15 @@ import jakarta.validation.Valid;
 
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 
@@ -31,6 +50,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 @CrossOrigin(origins = "http://localhost:8080") 
 public class ToDoController {
 
+    private static final String STARTED = Long.toHexString(System.currentTimeMillis());
+
     @Autowired
     private ToDoService service;
 
@@ -39,41 +60,165 @@ public class ToDoController {
         return service.createToDo(toDo);
     }
 
+    @PostMapping("/todos/batch")
+    public ToDoBatchResult createToDos(@RequestBody List<NewToDo> toDos) {
+        return service.createToDos(toDos);
+    }
+
+    @PutMapping("/todos/batch/done")
+    public ToDoBatchResult completeToDos(@RequestBody List<UUID> ids) {
+        return service.completeToDos(ids);
+    }
+
+    @DeleteMapping("/todos/batch")
+    public ToDoBatchResult deleteToDos(@RequestBody List<UUID> ids) {
+        return service.deleteToDos(ids);
+    }
+
+    // The body is read as it arrives, its Content-Type picks the format: application/x-ndjson or text/csv
+    @PostMapping("/todos/import")
+    public ToDoImportResult importToDos(
+        @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+        InputStream body
+    ) throws IOException {
+        return service.importToDos(ToDoFileFormat.fromMediaType(contentType), body);
+    }
+
+    // If-Match: "<version>" only applies the write to that version of the To Do, otherwise 409.
+    // The ETag of the response is the new version, the body has it too.
     @PutMapping("/todos/{id}")
-    public ToDo updateToDo(@PathVariable UUID id, @Valid @RequestBody NewToDo updatedToDo) throws ToDoNotFoundException {
-        return service.updateToDo(id, updatedToDo);
+    public ResponseEntity<ToDo> updateToDo(
+        @PathVariable UUID id,
+        @Valid @RequestBody NewToDo updatedToDo,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) throws ToDoNotFoundException {
+        return withVersion(service.updateToDo(id, updatedToDo, expectedVersion(ifMatch)));
     }
 
     @PutMapping("/todos/{id}/done")
-    public ToDo completeToDo(@PathVariable UUID id) throws ToDoNotFoundException {
-        return service.completeToDo(id);
+    public ResponseEntity<ToDo> completeToDo(
+        @PathVariable UUID id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) throws ToDoNotFoundException {
+        return withVersion(service.completeToDo(id, expectedVersion(ifMatch)));
     }
 
     @PutMapping("/todos/{id}/undone")
-    public ToDo uncompleteToDo(@PathVariable UUID id) throws ToDoNotFoundException {
-        return service.uncompleteToDo(id);
+    public ResponseEntity<ToDo> uncompleteToDo(
+        @PathVariable UUID id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) throws ToDoNotFoundException {
+        return withVersion(service.uncompleteToDo(id, expectedVersion(ifMatch)));
     }
     
+    // total: exact (default), none (no total, only whether a next page exists) or estimate (cached count)
     @GetMapping("/todos")
-    public Page<ToDo> getAllToDosFilterAndSort(
+    public Slice<ToDo> getAllToDosFilterAndSort(
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "10", required = false) int size,
         @RequestParam(required = false) String text,
         @RequestParam(required = false) Priority priority,
         @RequestParam(required = false) Boolean done,
-        @RequestParam(defaultValue = "", required = false) String sortBy
+        @RequestParam(defaultValue = "", required = false) String sortBy,
+        @RequestParam(defaultValue = "exact", required = false) String total,
+        WebRequest request
     ) {
-        return service.getAllToDosFilterAndSort(page,size,done,text,priority,sortBy);
+        ToDoTotal totalMode = ToDoTotal.from(total);
+        if (request.checkNotModified(eTag("page", page, size, text, priority, done, sortBy, totalMode))) {
+            return null;
+        }
+        return service.getAllToDosFilterAndSort(page,size,done,text,priority,sortBy,totalMode);
+    }
+
+    // Same filters and sort, paginated with the opaque cursor of the previous response (empty for the first one)
+    @GetMapping(value = "/todos", params = "cursor")
+    public ToDoCursorPage getToDosAfterCursor(
+        @RequestParam String cursor,
+        @RequestParam(defaultValue = "10", required = false) int size,
+        @RequestParam(required = false) String text,
+        @RequestParam(required = false) Priority priority,
+        @RequestParam(required = false) Boolean done,
+        @RequestParam(defaultValue = "", required = false) String sortBy,
+        WebRequest request
+    ) {
+        if (request.checkNotModified(eTag("cursor", cursor, size, text, priority, done, sortBy))) {
+            return null;
+        }
+        return service.getToDosAfterCursor(size,done,text,priority,sortBy,cursor);
+    }
+
+    // Streams every matching To Do, the response is written while the rows are read
+    @GetMapping("/todos/export")
+    public ResponseEntity<StreamingResponseBody> exportToDos(
+        @RequestParam(defaultValue = "ndjson", required = false) String format,
+        @RequestParam(required = false) String text,
+        @RequestParam(required = false) Priority priority,
+        @RequestParam(required = false) Boolean done
+    ) {
+        ToDoFileFormat fileFormat = ToDoFileFormat.from(format);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(fileFormat.getMediaType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"todos." + fileFormat.name().toLowerCase() + "\"")
+            .body(out -> service.exportToDos(done, text, priority, fileFormat, out));
     }
 
     @DeleteMapping("/todos/{id}")
-    public void deleteToDo(@PathVariable UUID id) throws ToDoNotFoundException {
-        service.deleteToDo(id);
+    public void deleteToDo(
+        @PathVariable UUID id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) throws ToDoNotFoundException {
+        service.deleteToDo(id, expectedVersion(ifMatch));
     }
 
     @GetMapping("/todos/stats")
-    public ToDoStatistics getStatistics() {
+    public ToDoStatistics getStatistics(WebRequest request) {
+        if (request.checkNotModified(eTag("stats"))) {
+            return null;
+        }
         return service.geToDoStatistics();
     }
+
+    private static ResponseEntity<ToDo> withVersion(ToDo toDo) {
+        return ResponseEntity.ok().eTag(String.valueOf(toDo.getVersion())).body(toDo);
+    }
+
+    // No header or * accepts any version
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(ifMatch.trim().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match should be the version of the To Do, like \"3\".");
+        }
+    }
+
+    // Strong ETag: data version plus a digest of the query, a matching If-None-Match answers 304 without any query.
+    // The start time keeps tags from a previous run, whose versions restarted at zero, from matching.
+    private String eTag(String resource, Object... parameters) {
+        return "\"" + resource + "-" + STARTED + "-" + service.getDataVersion() + "-" + digest(parameters) + "\"";
+    }
+
+    // SHA-256 of the parameters, each one length-prefixed so that no two different queries digest the same input
+    private static String digest(Object... parameters) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Object parameter : parameters) {
+            if (parameter == null) {
+                sha256.update((byte) 0);
+            } else {
+                byte[] value = parameter.toString().getBytes(StandardCharsets.UTF_8);
+                sha256.update((byte) 1);
+                sha256.update(ByteBuffer.allocate(Integer.BYTES).putInt(value.length).array());
+                sha256.update(value);
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sha256.digest());
+    }
     
 }
@@ -0,0 +1,74 @@
+package com.todos.backend.backend_todos.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Response of the batch endpoints: one item per element of the request, in the same order
+public class ToDoBatchResult {
+    public enum Status {
+        CREATED, DONE, DELETED, INVALID, NOT_FOUND
+    }
+
+    private int succeeded;
+    private int failed;
+    private List<Item> items;
+
+    public ToDoBatchResult() {
+        this.items = new ArrayList<>();
+    }
+
+    public void add(Item item) {
+        if (item.getStatus() == Status.INVALID || item.getStatus() == Status.NOT_FOUND) {
+            failed++;
+        } else {
+            succeeded++;
+        }
+        items.add(item);
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public static class Item {
+        private int index;
+        private UUID id;
+        private Status status;
+        private String error;
+
+        public Item() {
+        }
+
+        public Item(int index, UUID id, Status status, String error) {
+            this.index = index;
+            this.id = id;
+            this.status = status;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.todos.backend.backend_todos.dto;
+
+import java.util.List;
+
+import com.todos.backend.backend_todos.models.ToDo;
+
+// One window of the cursor mode of GET /todos, nextCursor is null on the last window
+public class ToDoCursorPage {
+    private List<ToDo> content;
+    private String nextCursor;
+
+    public ToDoCursorPage() {
+    }
+
+    public ToDoCursorPage(List<ToDo> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ToDo> getContent() {
+        return content;
+    }
+
+    public void setContent(List<ToDo> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,53 @@
+package com.todos.backend.backend_todos.dto;
+
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+// Formats of GET /todos/export and POST /todos/import, one To Do per line
+public enum ToDoFileFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    // Column order of CSV files, with a header line
+    public static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+        .addColumn("id")
+        .addColumn("text")
+        .addColumn("priority")
+        .addColumn("done")
+        .addColumn("creationDate")
+        .addColumn("dueDate")
+        .addColumn("doneDate")
+        .build()
+        .withHeader();
+
+    private final String mediaType;
+
+    ToDoFileFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static ToDoFileFormat from(String format) {
+        for (ToDoFileFormat value : values()) {
+            if (value.name().equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid format: " + format + ". Use ndjson or csv.");
+    }
+
+    // Format of a request body from its Content-Type, parameters such as charset are ignored
+    public static ToDoFileFormat fromMediaType(String contentType) {
+        if (contentType != null) {
+            String mediaType = contentType.split(";", 2)[0].trim();
+            for (ToDoFileFormat value : values()) {
+                if (value.mediaType.equalsIgnoreCase(mediaType)) {
+                    return value;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid Content-Type: " + contentType + ". Use application/x-ndjson or text/csv.");
+    }
+}
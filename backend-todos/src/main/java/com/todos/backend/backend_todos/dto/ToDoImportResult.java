@@ -0,0 +1,62 @@
+package com.todos.backend.backend_todos.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Response of POST /todos/import: counters for the whole file and the first rejected lines
+public class ToDoImportResult {
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private long accepted;
+    private long rejected;
+    private List<Line> errors;
+
+    public ToDoImportResult() {
+        this.errors = new ArrayList<>();
+    }
+
+    public void accept(long count) {
+        accepted += count;
+    }
+
+    // Every rejected line is counted, only the first MAX_REPORTED_ERRORS are kept
+    public void reject(long line, String error) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new Line(line, error));
+        }
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<Line> getErrors() {
+        return errors;
+    }
+
+    public static class Line {
+        private long line;
+        private String error;
+
+        public Line() {
+        }
+
+        public Line(long line, String error) {
+            this.line = line;
+            this.error = error;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
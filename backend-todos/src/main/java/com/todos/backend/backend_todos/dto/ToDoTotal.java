@@ -0,0 +1,20 @@
+package com.todos.backend.backend_todos.dto;
+
+// How GET /todos computes the total number of matching To Dos
+public enum ToDoTotal {
+    // Counted on every request
+    EXACT,
+    // Not computed, the response is a slice telling only whether a next page exists
+    NONE,
+    // Served from ToDoCountEstimator, exact once the last page is reached
+    ESTIMATE;
+
+    public static ToDoTotal from(String total) {
+        for (ToDoTotal value : values()) {
+            if (value.name().equalsIgnoreCase(total)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid total: " + total + ". Use exact, none or estimate.");
+    }
+}
@@ -3,6 +3,7 @@ package com.todos.backend.backend_todos.exceptions;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -44,6 +45,24 @@ public class GlobalExceptionHandler {
         return errors;
     }
 
+    // Stale If-Match version, or a concurrent write between the read and the save
+    @ExceptionHandler(ToDoConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String,Object> handleToDoConflict(ToDoConflictException e) {
+        Map<String,Object> errors = new HashMap<>();
+        errors.put("error", e.getMessage());
+        return errors;
+    }
+
+    // A version check failed inside the repository, e.g. a batch racing another write to one of its To Dos
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String,Object> handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        Map<String,Object> errors = new HashMap<>();
+        errors.put("error", "A To Do was changed by another request, read it again");
+        return errors;
+    }
+
     // NoResourceFoundException
     @ExceptionHandler(NoResourceFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
@@ -0,0 +1,7 @@
+package com.todos.backend.backend_todos.exceptions;
+
+public class ToDoConflictException extends RuntimeException {
+    public ToDoConflictException(String message) {
+        super(message);
+    }
+}
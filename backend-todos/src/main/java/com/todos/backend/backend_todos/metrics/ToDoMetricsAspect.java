@@ -0,0 +1,107 @@
+package com.todos.backend.backend_todos.metrics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.repositories.ToDoDBRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every ToDoService operation (todos.service) and every ToDoRepository method
+ * (todos.repository). Repository timers are tagged with the implementation and, for the
+ * filtered queries, with the filter shape: which of done / text / priority are present and
+ * the sorted fields, never their values, so the number of series stays bounded.
+ */
+@Aspect
+@Component
+public class ToDoMetricsAspect {
+    private static final String FILTERED_QUERY = "findByDoneTextAndPriority";
+    private static final Tags NO_FILTER = Tags.of("filter", "none", "sort", "none", "pagination", "none");
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Around("execution(public * com.todos.backend.backend_todos.services.ToDoService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("todos.service", Tags.of("method", joinPoint.getSignature().getName()), joinPoint);
+    }
+
+    @Around("execution(* com.todos.backend.backend_todos.repositories.ToDoRepository.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        Tags tags = Tags.of("method", method, "implementation", implementationOf(joinPoint));
+        // Prometheus needs the same tag keys on every series of a meter
+        tags = tags.and(FILTERED_QUERY.equals(method) ? filterTags(joinPoint.getArgs()) : NO_FILTER);
+        return time("todos.repository", tags, joinPoint);
+    }
+
+    private Object time(String name, Tags tags, ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(name).tags(tags).tag("exception", exception).register(registry));
+        }
+    }
+
+    // Spring Data repositories are proxies around SimpleJpaRepository, name them after their interface
+    private static String implementationOf(ProceedingJoinPoint joinPoint) {
+        if (joinPoint.getThis() instanceof ToDoDBRepository) {
+            return ToDoDBRepository.class.getSimpleName();
+        }
+        return ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+    }
+
+    // Arguments: done, text, priority, then either a Pageable or a position, a Sort and a limit
+    private static Tags filterTags(Object[] args) {
+        List<String> filters = new ArrayList<>();
+        if (args[0] instanceof Boolean) {
+            filters.add("done");
+        }
+        if (args[1] instanceof String) {
+            filters.add("text");
+        }
+        if (args[2] instanceof Priority) {
+            filters.add("priority");
+        }
+        Sort sort = Sort.unsorted();
+        for (Object arg : args) {
+            if (arg instanceof Pageable pageable) {
+                sort = pageable.getSort();
+            } else if (arg instanceof Sort argSort) {
+                sort = argSort;
+            }
+        }
+        // Only the first order of a property takes effect (ToDoKeyset.totalOrder), so repeats are not tagged
+        List<String> sortFields = new ArrayList<>();
+        Set<String> sortedProperties = new HashSet<>();
+        for (Sort.Order order : sort) {
+            if (sortedProperties.add(order.getProperty())) {
+                sortFields.add(order.getProperty() + ":" + order.getDirection().name().toLowerCase());
+            }
+        }
+        return Tags.of(
+            "filter", filters.isEmpty() ? "none" : String.join("+", filters),
+            "sort", sortFields.isEmpty() ? "none" : String.join(",", sortFields),
+            "pagination", args[3] instanceof Pageable ? "offset" : "keyset");
+    }
+}
@@ -3,20 +3,41 @@ package com.todos.backend.backend_todos.models;
 import java.util.Date;
 import java.util.UUID;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
 import com.fasterxml.jackson.annotation.JsonFormat;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
 
 @Entity
+@EntityListeners(ToDoVersionListener.class)
+// Second-level cache region sized in application.conf, updated after each committed write
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "todos")
+// Created by ddl-auto=update, schema.sql is not run. They end with the id tiebreaker of the page order (see ToDoSpecifications.sortFor)
+@Table(indexes = {
+    @Index(name = "idx_to_do_done_priority_due_date", columnList = "done, priority, due_date, id"),
+    @Index(name = "idx_to_do_done_priority_due_date_desc", columnList = "done, priority, due_date desc, id desc"),
+    @Index(name = "idx_to_do_done_creation_date", columnList = "done, creation_date, id"),
+    @Index(name = "idx_to_do_priority_creation_date", columnList = "priority, creation_date, id")
+})
 public class ToDo {
 
     @Id
@@ -42,10 +63,29 @@ public class ToDo {
 
     @NotNull(message="To Do's priority is required.")
     private Priority priority;
+
+    // Bumped by every save, a save of an older version is rejected (JPA optimistic locking, compare-and-set in memory).
+    // Never null in the table: rows inserted without a version, or there before the column, start at 0
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
     
     // Constructor
     public ToDo() {
     }
+
+    // Copy constructor, used by the in-memory repository to keep its own snapshot of each To Do
+    public ToDo(ToDo other) {
+        this.id = other.id;
+        this.creationDate = other.creationDate;
+        this.dueDate = other.dueDate;
+        this.doneDate = other.doneDate;
+        this.text = other.text;
+        this.done = other.done;
+        this.priority = other.priority;
+        this.version = other.version;
+    }
     
     // Setters and Getters
     public UUID getId() {
@@ -90,5 +130,11 @@ public class ToDo {
     public void setPriority(Priority priority) {
         this.priority = priority;
     }
+    public Long getVersion() {
+        return version;
+    }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 
 }
@@ -0,0 +1,44 @@
+package com.todos.backend.backend_todos.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Data version of the To Do table, for ToDoDBRepository.getDataVersion().
+ * Every insert, update or delete bumps it, but only once the transaction completed, so a reader
+ * can never see the new version together with the old rows. Only writes made by this application
+ * are seen, which is enough for the embedded database.
+ */
+public class ToDoVersionListener {
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void onWrite(ToDo toDo) {
+        changed();
+    }
+
+    public static long current() {
+        return VERSION.get();
+    }
+
+    public static void changed() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    VERSION.incrementAndGet();
+                }
+            });
+        } else {
+            VERSION.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the first k elements (by comparator) of a stream of any length using a bounded heap,
+ * while counting every offered element. Used to build a page when the matches cannot be read
+ * from an ordered index: selecting offset + page size rows costs O(n log k) time and O(k) memory
+ * instead of collecting and sorting every match.
+ */
+public class BoundedTopK<T> {
+    private final int k;
+    private final Comparator<? super T> comparator;
+    // Max-heap on the comparator, the head is the worst element kept so far
+    private final PriorityQueue<T> heap;
+    private long count;
+
+    public BoundedTopK(int k, Comparator<? super T> comparator) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        this.k = k;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Collections.reverseOrder(comparator));
+    }
+
+    // Capacity needed to serve the page at the given offset
+    public static int capacityFor(long offset, int pageSize) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, offset + pageSize);
+    }
+
+    public void offer(T element) {
+        count++;
+        if (heap.size() < k) {
+            heap.add(element);
+        } else if (k > 0 && comparator.compare(element, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    // Number of elements offered, kept or not
+    public long getCount() {
+        return count;
+    }
+
+    // Kept elements from position offset on, in comparator order
+    public List<T> page(long offset, int pageSize) {
+        List<T> sorted = new ArrayList<>(heap);
+        sorted.sort(comparator);
+        int start = (int) Math.min(offset, sorted.size());
+        int end = (int) Math.min((long) start + pageSize, sorted.size());
+        return new ArrayList<>(sorted.subList(start, end));
+    }
+}
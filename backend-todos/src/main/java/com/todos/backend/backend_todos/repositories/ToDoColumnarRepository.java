@@ -0,0 +1,740 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Repository;
+
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * In-memory storage laid out column-wise (todos.storage.mode=columnar).
+ * A row is a slot in primitive arrays: two longs for the id, epoch millis for the dates
+ * (Long.MIN_VALUE for none), a long for the version, a byte for the priority ordinal and a bit
+ * for done. Texts are packed as UTF-8 in one byte array. Ids are found through an
+ * open-addressing table of slots, so no object is kept per row and the garbage collector has
+ * almost nothing to trace.
+ * Queries scan the columns and keep the rows of the page in a primitive bounded heap; ToDo
+ * objects are only built for the rows returned. A read-write lock guards the whole store, saves
+ * and deletes check the version of the To Do under it like ToDoInMemoryRepository does.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "todos.storage.mode", havingValue = "columnar")
+public class ToDoColumnarRepository implements ToDoRepository, MeterBinder {
+    private static final int INITIAL_ROWS = 1024;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final byte NO_PRIORITY = -1;
+    private static final int EXPORT_CHUNK = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] idHigh = new long[INITIAL_ROWS];
+    private long[] idLow = new long[INITIAL_ROWS];
+    private long[] creationDate = new long[INITIAL_ROWS];
+    private long[] dueDate = new long[INITIAL_ROWS];
+    private long[] doneDate = new long[INITIAL_ROWS];
+    private long[] version = new long[INITIAL_ROWS];
+    private byte[] priority = new byte[INITIAL_ROWS];
+    private int[] textOffset = new int[INITIAL_ROWS];
+    private int[] textLength = new int[INITIAL_ROWS];
+    private final BitSet done = new BitSet();
+    // Rows whose done column holds null rather than false
+    private final BitSet doneUnknown = new BitSet();
+    private final BitSet asciiText = new BitSet();
+    private final BitSet live = new BitSet();
+
+    private byte[] text = new byte[INITIAL_ROWS * 32];
+    private int textUsed;
+    private int textGarbage;
+
+    // Slots freed by deletes, reused before growing the columns
+    private int[] freeRows = new int[16];
+    private int freeCount;
+    private int highWater;
+    private int rows;
+
+    // Open addressing with linear probing, holds row + 1 (0 is an empty slot)
+    private int[] idTable = new int[INITIAL_ROWS * 2];
+
+    private final ToDoStatisticsAccumulator statistics = new ToDoStatisticsAccumulator();
+    private final AtomicLong dataVersion = new AtomicLong();
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("todos.columnar.rows", this, repository -> repository.rows)
+            .description("To Dos held by the columnar repository")
+            .register(registry);
+        Gauge.builder("todos.columnar.text.bytes", this, repository -> repository.textUsed)
+            .description("Bytes of the packed text column, garbage included")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    @Override
+    public ToDo save(ToDo toDo) {
+        if (toDo.getId() == null) {
+            toDo.setId(UUID.randomUUID());
+        }
+        lock.writeLock().lock();
+        try {
+            int row = find(toDo.getId().getMostSignificantBits(), toDo.getId().getLeastSignificantBits());
+            checkVersion(toDo.getId(), toDo.getVersion(), row);
+            if (row >= 0) {
+                statistics.remove(materialize(row));
+                textGarbage += Math.max(0, textLength[row]);
+                version[row]++;
+            } else {
+                row = allocate();
+                idHigh[row] = toDo.getId().getMostSignificantBits();
+                idLow[row] = toDo.getId().getLeastSignificantBits();
+                version[row] = 0;
+                insertId(row);
+            }
+            creationDate[row] = millis(toDo.getCreationDate());
+            dueDate[row] = millis(toDo.getDueDate());
+            doneDate[row] = millis(toDo.getDoneDate());
+            priority[row] = toDo.getPriority() == null ? NO_PRIORITY : (byte) toDo.getPriority().ordinal();
+            done.set(row, Boolean.TRUE.equals(toDo.getDone()));
+            doneUnknown.set(row, toDo.getDone() == null);
+            storeText(row, toDo.getText());
+            statistics.add(toDo);
+            toDo.setVersion(version[row]);
+            dataVersion.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return toDo;
+    }
+
+    @Override
+    public Optional<ToDo> findById(UUID id) {
+        lock.readLock().lock();
+        try {
+            int row = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            return row < 0 ? Optional.empty() : Optional.of(materialize(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(ToDo toDo) {
+        UUID id = toDo.getId();
+        lock.writeLock().lock();
+        try {
+            int row = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (row >= 0) {
+                checkVersion(id, toDo.getVersion(), row);
+                remove(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteById(UUID id, Long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            int row = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (row < 0 || !matches(expectedVersion, row)) {
+                return 0;
+            }
+            remove(row);
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int markDone(UUID id, Date doneDate, Long expectedVersion) {
+        return setDone(id, expectedVersion, true, doneDate);
+    }
+
+    @Override
+    public int markUndone(UUID id, Long expectedVersion) {
+        return setDone(id, expectedVersion, false, null);
+    }
+
+    // Only the done bits, the done date and the version of the row are written, the text is left in place
+    private int setDone(UUID id, Long expectedVersion, boolean value, Date date) {
+        lock.writeLock().lock();
+        try {
+            int row = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (row < 0 || !matches(expectedVersion, row)) {
+                return 0;
+            }
+            statistics.remove(materialize(row));
+            done.set(row, value);
+            doneUnknown.clear(row);
+            if (!value) {
+                doneDate[row] = NO_DATE;
+            } else if (doneDate[row] == NO_DATE) {
+                doneDate[row] = millis(date);
+            }
+            version[row]++;
+            statistics.add(materialize(row));
+            dataVersion.incrementAndGet();
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // All or nothing, like the other in-memory store: every version is checked before the first row is written
+    @Override
+    public List<ToDo> saveBatch(List<ToDo> toDos) {
+        List<ToDo> saved = new ArrayList<>(toDos.size());
+        lock.writeLock().lock();
+        try {
+            // The same id twice is checked against the version its first write gives it
+            Map<UUID, Long> written = new HashMap<>();
+            for (ToDo toDo : toDos) {
+                if (toDo.getId() == null) {
+                    continue;
+                }
+                Long current = written.get(toDo.getId());
+                if (current == null) {
+                    int row = find(toDo.getId().getMostSignificantBits(), toDo.getId().getLeastSignificantBits());
+                    checkVersion(toDo.getId(), toDo.getVersion(), row);
+                    written.put(toDo.getId(), row < 0 ? 0 : version[row] + 1);
+                } else if (toDo.getVersion() != null && !toDo.getVersion().equals(current)) {
+                    throw new OptimisticLockingFailureException("To Do " + toDo.getId() + " was changed or deleted since version " + toDo.getVersion());
+                } else {
+                    written.put(toDo.getId(), current + 1);
+                }
+            }
+            for (ToDo toDo : toDos) {
+                saved.add(save(toDo));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return saved;
+    }
+
+    @Override
+    public List<ToDo> findAllById(Iterable<UUID> ids) {
+        List<ToDo> found = new ArrayList<>();
+        for (UUID id : ids) {
+            findById(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    // Without a version check, like the single DELETE statement of ToDoDBRepository
+    @Override
+    public void deleteBatch(List<ToDo> toDos) {
+        toDos.forEach(toDo -> deleteById(toDo.getId(), null));
+    }
+
+    @Override
+    public Page<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable) {
+        RowOrder order = new RowOrder(pageable.getSort());
+        lock.readLock().lock();
+        try {
+            RowTopK topK = new RowTopK(Math.min(BoundedTopK.capacityFor(pageable.getOffset(), pageable.getPageSize()), rows), order);
+            scan(done, text, priority, topK::offer);
+            int[] sorted = topK.sorted();
+            List<ToDo> content = new ArrayList<>();
+            for (long i = pageable.getOffset(); i < sorted.length && content.size() < pageable.getPageSize(); i++) {
+                content.add(materialize(sorted[(int) i]));
+            }
+            return new PageImpl<>(content, pageable, topK.count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every row is scanned anyway, so the slice is the page without its total
+    @Override
+    public Slice<ToDo> findSliceByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable) {
+        Page<ToDo> page = findByDoneTextAndPriority(done, text, priority, pageable);
+        return new SliceImpl<>(page.getContent(), pageable, page.hasNext());
+    }
+
+    @Override
+    public long countByDoneTextAndPriority(Boolean done, String text, Priority priority) {
+        lock.readLock().lock();
+        try {
+            long[] count = new long[1];
+            scan(done, text, priority, row -> count[0]++);
+            return count[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Window<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, KeysetScrollPosition position, Sort sort, int limit) {
+        RowOrder order = new RowOrder(sort);
+        long[] after = position.isInitial() ? null : order.keysOf(ToDoKeyset.toProbe(position));
+        lock.readLock().lock();
+        try {
+            // One extra row tells whether there is a next window
+            RowTopK topK = new RowTopK(Math.min(limit + 1, rows), order);
+            scan(done, text, priority, row -> {
+                if (after == null || order.compareToKeys(row, after) > 0) {
+                    topK.offer(row);
+                }
+            });
+            List<ToDo> content = new ArrayList<>();
+            for (int row : topK.sorted()) {
+                content.add(materialize(row));
+            }
+            return ToDoKeyset.window(content, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Walks the slots EXPORT_CHUNK at a time, with the read lock held for one chunk only, so a
+     * long export never blocks writers and holds no more than a chunk of rows. Rows come in slot
+     * order, not creation order: slots are never moved, only freed and reused, so a To Do that
+     * exists for the whole export is handed over once. A To Do written during the export may or
+     * may not be in it, like with a database cursor.
+     */
+    @Override
+    public void forEachMatching(Boolean done, String text, Priority priority, Consumer<ToDo> action) {
+        TextMatcher matcher = text == null ? null : new TextMatcher(text);
+        List<ToDo> chunk = new ArrayList<>(EXPORT_CHUNK);
+        boolean more = true;
+        for (int from = 0; more; from += EXPORT_CHUNK) {
+            chunk.clear();
+            lock.readLock().lock();
+            try {
+                scan(done, matcher, priority, from, from + EXPORT_CHUNK, row -> chunk.add(materialize(row)));
+                more = live.nextSetBit(from + EXPORT_CHUNK) >= 0;
+            } finally {
+                lock.readLock().unlock();
+            }
+            chunk.forEach(action);
+        }
+    }
+
+    @Override
+    public ToDoStatisticsProjection computeStatistics() {
+        return statistics.snapshot();
+    }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    // Calls the consumer with every live row matching the filters, must hold the read lock
+    private void scan(Boolean doneFilter, String textFilter, Priority priorityFilter, IntConsumer matches) {
+        scan(doneFilter, textFilter == null ? null : new TextMatcher(textFilter), priorityFilter, 0, Integer.MAX_VALUE, matches);
+    }
+
+    // Same, for the slots from (inclusive) to (exclusive) only
+    private void scan(Boolean doneFilter, TextMatcher matcher, Priority priorityFilter, int from, int to, IntConsumer matches) {
+        byte wantedPriority = priorityFilter == null ? NO_PRIORITY : (byte) priorityFilter.ordinal();
+        for (int row = live.nextSetBit(from); row >= 0 && row < to; row = live.nextSetBit(row + 1)) {
+            if (doneFilter != null && (doneUnknown.get(row) || done.get(row) != doneFilter)) {
+                continue;
+            }
+            if (priorityFilter != null && priority[row] != wantedPriority) {
+                continue;
+            }
+            if (matcher != null && !matcher.matches(row)) {
+                continue;
+            }
+            matches.accept(row);
+        }
+    }
+
+    private ToDo materialize(int row) {
+        ToDo toDo = new ToDo();
+        toDo.setId(new UUID(idHigh[row], idLow[row]));
+        toDo.setCreationDate(date(creationDate[row]));
+        toDo.setDueDate(date(dueDate[row]));
+        toDo.setDoneDate(date(doneDate[row]));
+        toDo.setDone(doneUnknown.get(row) ? null : done.get(row));
+        toDo.setPriority(priority[row] == NO_PRIORITY ? null : Priority.values()[priority[row]]);
+        toDo.setText(textLength[row] < 0 ? null : new String(text, textOffset[row], textLength[row], StandardCharsets.UTF_8));
+        toDo.setVersion(version[row]);
+        return toDo;
+    }
+
+    // A To Do read at some version is only written over that same version, row is -1 once it is deleted
+    private void checkVersion(UUID id, Long expectedVersion, int row) {
+        if (expectedVersion != null && (row < 0 || !matches(expectedVersion, row))) {
+            throw new OptimisticLockingFailureException("To Do " + id + " was changed or deleted since version " + expectedVersion);
+        }
+    }
+
+    private boolean matches(Long expectedVersion, int row) {
+        return expectedVersion == null || expectedVersion == version[row];
+    }
+
+    // Frees the slot of a live row, must hold the write lock
+    private void remove(int row) {
+        statistics.remove(materialize(row));
+        removeId(row);
+        live.clear(row);
+        textGarbage += Math.max(0, textLength[row]);
+        textLength[row] = 0;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = row;
+        rows--;
+        dataVersion.incrementAndGet();
+    }
+
+    // A free slot, or a new one at the end of the columns
+    private int allocate() {
+        int row;
+        if (freeCount > 0) {
+            row = freeRows[--freeCount];
+        } else {
+            row = highWater++;
+            if (row == idHigh.length) {
+                int capacity = idHigh.length * 2;
+                idHigh = Arrays.copyOf(idHigh, capacity);
+                idLow = Arrays.copyOf(idLow, capacity);
+                creationDate = Arrays.copyOf(creationDate, capacity);
+                dueDate = Arrays.copyOf(dueDate, capacity);
+                doneDate = Arrays.copyOf(doneDate, capacity);
+                version = Arrays.copyOf(version, capacity);
+                priority = Arrays.copyOf(priority, capacity);
+                textOffset = Arrays.copyOf(textOffset, capacity);
+                textLength = Arrays.copyOf(textLength, capacity);
+            }
+        }
+        live.set(row);
+        rows++;
+        if (rows * 2 > idTable.length) {
+            resizeIds();
+        }
+        return row;
+    }
+
+    // Appends the text, the bytes of the previous one become garbage reclaimed by compactText()
+    private void storeText(int row, String value) {
+        if (value == null) {
+            textLength[row] = -1;
+            asciiText.clear(row);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (textGarbage > 1 << 20 && textGarbage > textUsed / 2) {
+            compactText();
+        }
+        if (textUsed + bytes.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textUsed + bytes.length));
+        }
+        System.arraycopy(bytes, 0, text, textUsed, bytes.length);
+        textOffset[row] = textUsed;
+        textLength[row] = bytes.length;
+        textUsed += bytes.length;
+        asciiText.set(row, bytes.length == value.length());
+    }
+
+    private void compactText() {
+        byte[] compacted = new byte[Math.max(INITIAL_ROWS, (textUsed - textGarbage) * 2)];
+        int used = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (textLength[row] > 0) {
+                System.arraycopy(text, textOffset[row], compacted, used, textLength[row]);
+                textOffset[row] = used;
+                used += textLength[row];
+            }
+        }
+        text = compacted;
+        textUsed = used;
+        textGarbage = 0;
+    }
+
+    private int find(long high, long low) {
+        int mask = idTable.length - 1;
+        for (int slot = hash(high, low) & mask; idTable[slot] != 0; slot = (slot + 1) & mask) {
+            int row = idTable[slot] - 1;
+            if (idHigh[row] == high && idLow[row] == low) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private void insertId(int row) {
+        int mask = idTable.length - 1;
+        int slot = hash(idHigh[row], idLow[row]) & mask;
+        while (idTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        idTable[slot] = row + 1;
+    }
+
+    // Backward shift deletion: the entries after the hole move up so probing never stops early
+    private void removeId(int row) {
+        int mask = idTable.length - 1;
+        int hole = hash(idHigh[row], idLow[row]) & mask;
+        while (idTable[hole] != row + 1) {
+            hole = (hole + 1) & mask;
+        }
+        for (int slot = (hole + 1) & mask; idTable[slot] != 0; slot = (slot + 1) & mask) {
+            int other = idTable[slot] - 1;
+            int home = hash(idHigh[other], idLow[other]) & mask;
+            // Move the entry unless its home lies cyclically after the hole and up to its slot
+            boolean homeAfterHole = hole <= slot ? (home > hole && home <= slot) : (home > hole || home <= slot);
+            if (!homeAfterHole) {
+                idTable[hole] = idTable[slot];
+                hole = slot;
+            }
+        }
+        idTable[hole] = 0;
+    }
+
+    private void resizeIds() {
+        idTable = new int[idTable.length * 2];
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            insertId(row);
+        }
+    }
+
+    private static int hash(long high, long low) {
+        long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long millis(Date date) {
+        return date == null ? NO_DATE : date.getTime();
+    }
+
+    private static Date date(long millis) {
+        return millis == NO_DATE ? null : new Date(millis);
+    }
+
+    /**
+     * Case-insensitive substring test on the packed text, same result as
+     * text.toLowerCase().contains(query.toLowerCase()). ASCII texts are compared byte by byte
+     * without decoding them; the others are decoded.
+     */
+    private class TextMatcher {
+        private final String lowerQuery;
+        private final byte[] asciiQuery;
+
+        TextMatcher(String query) {
+            lowerQuery = query.toLowerCase();
+            byte[] bytes = lowerQuery.getBytes(StandardCharsets.UTF_8);
+            // An ASCII text lower-cases to ASCII, it can never contain a non-ASCII query
+            asciiQuery = bytes.length == lowerQuery.length() ? bytes : null;
+        }
+
+        boolean matches(int row) {
+            if (textLength[row] < 0) {
+                return false;
+            }
+            if (!asciiText.get(row)) {
+                return new String(text, textOffset[row], textLength[row], StandardCharsets.UTF_8).toLowerCase().contains(lowerQuery);
+            }
+            if (asciiQuery == null) {
+                return false;
+            }
+            int start = textOffset[row];
+            int last = start + textLength[row] - asciiQuery.length;
+            for (int i = start; i <= last; i++) {
+                int j = 0;
+                while (j < asciiQuery.length && lower(text[i + j]) == asciiQuery[j]) {
+                    j++;
+                }
+                if (j == asciiQuery.length) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static byte lower(byte b) {
+            return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+        }
+    }
+
+    /**
+     * The total order of ToDoKeyset.comparator() over rows: every key is a long read from the
+     * columns (the id counts as two keys), so rows are compared without building ToDo objects.
+     */
+    private class RowOrder {
+        private static final int DUE_DATE = 0;
+        private static final int PRIORITY = 1;
+        private static final int CREATION_DATE = 2;
+        private static final int ID_HIGH = 3;
+        private static final int ID_LOW = 4;
+
+        private final int[] keys;
+        private final boolean[] descending;
+
+        RowOrder(Sort sort) {
+            List<Sort.Order> orders = ToDoKeyset.totalOrder(sort);
+            keys = new int[orders.size() + 1];
+            descending = new boolean[keys.length];
+            int i = 0;
+            for (Sort.Order order : orders) {
+                keys[i] = switch (order.getProperty()) {
+                    case ToDoKeyset.DUE_DATE -> DUE_DATE;
+                    case ToDoKeyset.PRIORITY -> PRIORITY;
+                    case ToDoKeyset.CREATION_DATE -> CREATION_DATE;
+                    default -> ID_HIGH;
+                };
+                descending[i++] = order.isDescending();
+                if (keys[i - 1] == ID_HIGH) {
+                    keys[i] = ID_LOW;
+                    descending[i] = order.isDescending();
+                    i++;
+                }
+            }
+        }
+
+        // Keys of a To Do outside the store, in the order of this comparator
+        long[] keysOf(ToDo toDo) {
+            long[] values = new long[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = switch (keys[i]) {
+                    case DUE_DATE -> millis(toDo.getDueDate());
+                    case PRIORITY -> toDo.getPriority().ordinal();
+                    case CREATION_DATE -> millis(toDo.getCreationDate());
+                    case ID_HIGH -> toDo.getId().getMostSignificantBits();
+                    default -> toDo.getId().getLeastSignificantBits();
+                };
+            }
+            return values;
+        }
+
+        int compare(int a, int b) {
+            for (int i = 0; i < keys.length; i++) {
+                int comparison = Long.compare(key(a, keys[i]), key(b, keys[i]));
+                if (comparison != 0) {
+                    return descending[i] ? -comparison : comparison;
+                }
+            }
+            return 0;
+        }
+
+        int compareToKeys(int row, long[] values) {
+            for (int i = 0; i < keys.length; i++) {
+                int comparison = Long.compare(key(row, keys[i]), values[i]);
+                if (comparison != 0) {
+                    return descending[i] ? -comparison : comparison;
+                }
+            }
+            return 0;
+        }
+
+        private long key(int row, int key) {
+            return switch (key) {
+                case DUE_DATE -> dueDate[row];
+                case PRIORITY -> priority[row];
+                case CREATION_DATE -> creationDate[row];
+                case ID_HIGH -> idHigh[row];
+                default -> idLow[row];
+            };
+        }
+    }
+
+    // BoundedTopK over row numbers: a max-heap of ints, so selecting a page allocates no object per row
+    private static class RowTopK {
+        private final int[] heap;
+        private final RowOrder order;
+        private int size;
+        private long count;
+
+        RowTopK(int k, RowOrder order) {
+            this.heap = new int[Math.max(0, k)];
+            this.order = order;
+        }
+
+        void offer(int row) {
+            count++;
+            if (size < heap.length) {
+                heap[size] = row;
+                siftUp(size++);
+            } else if (size > 0 && order.compare(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(0, size);
+            }
+        }
+
+        // Kept rows in ascending order, the heap is consumed
+        int[] sorted() {
+            int[] result = new int[size];
+            for (int n = size; n > 0; n--) {
+                result[n - 1] = heap[0];
+                heap[0] = heap[n - 1];
+                siftDown(0, n - 1);
+            }
+            size = 0;
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (order.compare(heap[i], heap[parent]) <= 0) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int n) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < n && order.compare(heap[left], heap[largest]) > 0) {
+                    largest = left;
+                }
+                if (right < n && order.compare(heap[right], heap[largest]) > 0) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int row = heap[a];
+            heap[a] = heap[b];
+            heap[b] = row;
+        }
+    }
+}
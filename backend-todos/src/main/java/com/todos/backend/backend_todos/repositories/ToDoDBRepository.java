@@ -1,23 +1,154 @@
 package com.todos.backend.backend_todos.repositories;
 
+import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
 import com.todos.backend.backend_todos.models.Priority;
 import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.models.ToDoVersionListener;
 
-public interface ToDoDBRepository extends JpaRepository<ToDo, UUID>, ToDoRepository {
-    String FILTER_QUERY_BY_DONE_TEXT_AND_PRIORITY = "SELECT t FROM ToDo t WHERE " + 
-        "(:done IS NULL OR t.done = :done) " + 
-        "AND (:text IS NULL OR LOWER(t.text) LIKE LOWER(CONCAT('%', :text, '%'))) " +
-        "AND (:priority IS NULL OR t.priority = :priority)";
+import jakarta.persistence.QueryHint;
 
+public interface ToDoDBRepository extends JpaRepository<ToDo, UUID>, JpaSpecificationExecutor<ToDo>, ToDoDBRepositoryCustom, ToDoRepository {
+    // Whole seconds between creation and completion of one To Do, truncated per row like the in-memory accumulator
+    String DONE_SECONDS = "(((t.doneDate - t.creationDate) by nanosecond) / 1000000000)";
+    String PRIORITY = "com.todos.backend.backend_todos.models.Priority.";
+    String STATISTICS_QUERY = "SELECT COUNT(t) AS totalDone, " +
+        "COALESCE(SUM(" + DONE_SECONDS + "), 0) AS totalDoneSeconds, " +
+        "COALESCE(SUM(CASE WHEN t.priority = " + PRIORITY + "LOW THEN 1 ELSE 0 END), 0) AS totalLowDone, " +
+        "COALESCE(SUM(CASE WHEN t.priority = " + PRIORITY + "LOW THEN " + DONE_SECONDS + " ELSE 0 END), 0) AS totalLowDoneSeconds, " +
+        "COALESCE(SUM(CASE WHEN t.priority = " + PRIORITY + "MEDIUM THEN 1 ELSE 0 END), 0) AS totalMediumDone, " +
+        "COALESCE(SUM(CASE WHEN t.priority = " + PRIORITY + "MEDIUM THEN " + DONE_SECONDS + " ELSE 0 END), 0) AS totalMediumDoneSeconds, " +
+        "COALESCE(SUM(CASE WHEN t.priority = " + PRIORITY + "HIGH THEN 1 ELSE 0 END), 0) AS totalHighDone, " +
+        "COALESCE(SUM(CASE WHEN t.priority = " + PRIORITY + "HIGH THEN " + DONE_SECONDS + " ELSE 0 END), 0) AS totalHighDoneSeconds " +
+        "FROM ToDo t WHERE t.done = true AND t.doneDate IS NOT NULL AND t.creationDate IS NOT NULL";
+    // Conditions of the single-statement state changes, a null :version skips the version check
+    String BY_ID_AND_VERSION = " WHERE t.id = :id AND (:version IS NULL OR t.version = :version)";
+    // A version left NULL by a table from before the NOT NULL column counts as 0, so every change still moves it on
+    String NEXT_VERSION = "t.version = COALESCE(t.version, 0) + 1";
+    String MARK_DONE_QUERY = "UPDATE ToDo t SET t.done = true, t.doneDate = COALESCE(t.doneDate, :doneDate), " +
+        NEXT_VERSION + BY_ID_AND_VERSION;
+    String MARK_UNDONE_QUERY = "UPDATE ToDo t SET t.done = false, t.doneDate = NULL, " + NEXT_VERSION + BY_ID_AND_VERSION;
+    String DELETE_QUERY = "DELETE FROM ToDo t" + BY_ID_AND_VERSION;
+
+    // Inside the caller's transaction, so Hibernate groups the statements into JDBC batches (hibernate.jdbc.batch_size)
+    @Override
+    default List<ToDo> saveBatch(List<ToDo> toDos) {
+        return saveAll(toDos);
+    }
+
+    // A single DELETE statement for the whole batch, it bypasses the entity callbacks of ToDoVersionListener
+    @Override
+    default void deleteBatch(List<ToDo> toDos) {
+        deleteAllInBatch(toDos);
+        ToDoVersionListener.changed();
+    }
+
+    /**
+     * One UPDATE or DELETE statement each, nothing is loaded or dirty checked. Hibernate drops the
+     * ToDo region of the second-level cache and the cached queries after such a statement, and
+     * ToDoVersionListener only sees entity writes, so the data version is bumped here.
+     */
+    @Override
+    default int markDone(UUID id, Date doneDate, Long expectedVersion) {
+        return changed(updateDone(id, doneDate, expectedVersion));
+    }
+
+    @Override
+    default int markUndone(UUID id, Long expectedVersion) {
+        return changed(updateUndone(id, expectedVersion));
+    }
+
+    @Override
+    default int deleteById(UUID id, Long expectedVersion) {
+        return changed(deleteByIdAndVersion(id, expectedVersion));
+    }
+
+    // Pending changes are flushed before the statement and the persistence context is cleared after it
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(MARK_DONE_QUERY)
+    int updateDone(@Param("id") UUID id, @Param("doneDate") Date doneDate, @Param("version") Long expectedVersion);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(MARK_UNDONE_QUERY)
+    int updateUndone(@Param("id") UUID id, @Param("version") Long expectedVersion);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(DELETE_QUERY)
+    int deleteByIdAndVersion(@Param("id") UUID id, @Param("version") Long expectedVersion);
+
+    private static int changed(int rows) {
+        if (rows > 0) {
+            ToDoVersionListener.changed();
+        }
+        return rows;
+    }
+
+    @Override
+    default long getDataVersion() {
+        return ToDoVersionListener.current();
+    }
+
+    /**
+     * Only the supplied filters become predicates, of the page query and of its count query, so
+     * the database plans each filter combination on its own and can range scan the indexes of ToDo.
+     * Rows are ordered by the total order of ToDoKeyset, so pages never overlap.
+     */
+    @Override
+    default Page<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable) {
+        Sort sort = ToDoSpecifications.sortFor(pageable.getSort(), done, priority);
+        Pageable ordered = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        return findAll(ToDoSpecifications.matching(done, text, priority), ordered);
+    }
+
+    // Page and count results go to the query cache, which drops them once the to_do table is written
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Page<ToDo> findAll(Specification<ToDo> specification, Pageable pageable);
+
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    long count(Specification<ToDo> specification);
+
+    @Override
+    default long countByDoneTextAndPriority(Boolean done, String text, Priority priority) {
+        return count(ToDoSpecifications.matching(done, text, priority));
+    }
+
+    // Seek on the total order of ToDoKeyset and read one extra row to know whether a next window exists
+    @Override
+    default Window<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, KeysetScrollPosition position, Sort sort, int limit) {
+        Specification<ToDo> specification = ToDoSpecifications.matching(done, text, priority);
+        if (!position.isInitial()) {
+            specification = specification.and(ToDoSpecifications.after(sort, ToDoKeyset.toProbe(position)));
+        }
+        List<ToDo> rows = findBy(specification, query -> query.sortBy(ToDoSpecifications.sortFor(sort, done, priority)).limit(limit + 1).all());
+        return ToDoKeyset.window(rows, limit);
+    }
+
+    // Single aggregate round-trip, no entity is loaded
     @Override
-    @Query(FILTER_QUERY_BY_DONE_TEXT_AND_PRIORITY)
-    Page<ToDo> findByDoneTextAndPriority(@Param("done") Boolean done, @Param("text") String text, @Param("priority") Priority priority, Pageable pageable);
+    @Query(STATISTICS_QUERY)
+    ToDoStatisticsProjection computeStatistics();
 }
@@ -0,0 +1,19 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+
+// Methods of ToDoDBRepository that need the EntityManager, implemented by ToDoDBRepositoryCustomImpl
+public interface ToDoDBRepositoryCustom {
+    void forEachMatching(Boolean done, String text, Priority priority, Consumer<ToDo> action);
+    Slice<ToDo> findSliceByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable);
+    // Stores the To Dos as they are, ids and versions included, and deletes the ids, in one transaction
+    void writeAsIs(List<ToDo> saved, List<UUID> deleted);
+}
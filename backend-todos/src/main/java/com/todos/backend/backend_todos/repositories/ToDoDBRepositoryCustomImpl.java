@@ -0,0 +1,145 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.models.ToDoVersionListener;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+
+public class ToDoDBRepositoryCustomImpl implements ToDoDBRepositoryCustom {
+    // Rows fetched per round-trip, and rows kept in the persistence context before it is cleared
+    static final int FETCH_SIZE = 500;
+    // H2 upsert on the primary key, so new and known rows go into the same JDBC batch
+    static final String MERGE_AS_IS = "MERGE INTO to_do (id, creation_date, due_date, done_date, text, done, priority, version) " +
+        "KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Streams the filter query through a JDBC cursor instead of loading the result list.
+     * Entities are read-only and the persistence context is cleared every FETCH_SIZE rows,
+     * so memory stays flat whatever the number of rows.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachMatching(Boolean done, String text, Priority priority, Consumer<ToDo> action) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ToDo> query = cb.createQuery(ToDo.class);
+        Root<ToDo> root = query.from(ToDo.class);
+        query.select(root)
+            .where(ToDoSpecifications.matching(done, text, priority).toPredicate(root, query, cb))
+            .orderBy(QueryUtils.toOrders(ToDoSpecifications.sortFor(Sort.unsorted(), done, priority), root, cb));
+        try (Stream<ToDo> rows = entityManager
+                .createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            int inContext = 0;
+            for (Iterator<ToDo> iterator = rows.iterator(); iterator.hasNext();) {
+                action.accept(iterator.next());
+                if (++inContext == FETCH_SIZE) {
+                    entityManager.clear();
+                    inContext = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Used by ToDoTieredRepository, whose memory tier owns the ids and versions: the rows go
+     * through JDBC, so the id generator and the optimistic version check of the entity are
+     * bypassed, and all of them are sent as one batch of MERGE statements. Hibernate does not
+     * see those writes, so the ToDo region and the cached queries are dropped here, and again
+     * once the transaction completed.
+     */
+    @Override
+    @Transactional
+    public void writeAsIs(List<ToDo> saved, List<UUID> deleted) {
+        if (!deleted.isEmpty()) {
+            entityManager.createQuery("DELETE FROM ToDo t WHERE t.id IN :ids").setParameter("ids", deleted).executeUpdate();
+        }
+        if (!saved.isEmpty()) {
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(MERGE_AS_IS)) {
+                    for (ToDo toDo : saved) {
+                        statement.setObject(1, toDo.getId());
+                        statement.setTimestamp(2, timestamp(toDo.getCreationDate()));
+                        statement.setTimestamp(3, timestamp(toDo.getDueDate()));
+                        statement.setTimestamp(4, timestamp(toDo.getDoneDate()));
+                        statement.setString(5, toDo.getText());
+                        statement.setObject(6, toDo.getDone(), Types.BOOLEAN);
+                        statement.setObject(7, toDo.getPriority() == null ? null : toDo.getPriority().ordinal(), Types.TINYINT);
+                        statement.setLong(8, toDo.getVersion() == null ? 0 : toDo.getVersion());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            });
+            Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+            evictToDos(cache);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictToDos(cache);
+                }
+            });
+        }
+        ToDoVersionListener.changed();
+    }
+
+    // The page query of findByDoneTextAndPriority with one more row and without the count query
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<ToDo> findSliceByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ToDo> query = cb.createQuery(ToDo.class);
+        Root<ToDo> root = query.from(ToDo.class);
+        query.select(root)
+            .where(ToDoSpecifications.matching(done, text, priority).toPredicate(root, query, cb))
+            .orderBy(QueryUtils.toOrders(ToDoSpecifications.sortFor(pageable.getSort(), done, priority), root, cb));
+        List<ToDo> rows = entityManager.createQuery(query)
+            .setHint(HibernateHints.HINT_CACHEABLE, true)
+            .setFirstResult((int) pageable.getOffset())
+            .setMaxResults(pageable.getPageSize() + 1)
+            .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private static void evictToDos(Cache cache) {
+        cache.evictEntityData(ToDo.class);
+        cache.evictQueryRegions();
+    }
+
+    private static Timestamp timestamp(Date date) {
+        return date == null ? null : new Timestamp(date.getTime());
+    }
+}
@@ -1,91 +1,501 @@
 package com.todos.backend.backend_todos.repositories;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Repository;
 
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
 import com.todos.backend.backend_todos.models.Priority;
 import com.todos.backend.backend_todos.models.ToDo;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Thread-safe in-memory storage.
+ * The map only holds private snapshots of each To Do, so callers can mutate the objects
+ * they get back without affecting concurrent readers. Writes to the same id are serialized
+ * through a striped lock, reads never block.
+ * Snapshots are also kept in a ToDoOrderedIndex, partitioned by priority and done state and
+ * ordered for every supported sort, so pages are read by walking the index. Text filters of
+ * three or more characters only verify the candidates of a trigram ToDoTextIndex.
+ * With a ToDoMemoryPersistence every write is also logged, and the rows are recovered on startup.
+ * Saves and deletes compare the version of the To Do with the stored one under the lock of its id.
+ */
 @Repository
 @Primary
-public class ToDoInMemoryRepository  implements ToDoRepository{
-    private final Map<UUID, ToDo> database = new HashMap<>();
+@ConditionalOnProperty(name = "todos.storage.mode", havingValue = "memory", matchIfMissing = true)
+public class ToDoInMemoryRepository  implements ToDoRepository, MeterBinder {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Map<UUID, ToDo> database = new ConcurrentHashMap<>();
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+    private final ToDoOrderedIndex index = new ToDoOrderedIndex();
+    private final ToDoTextIndex textIndex = new ToDoTextIndex();
+    private final ToDoStatisticsAccumulator statistics = new ToDoStatisticsAccumulator();
+    private final AtomicLong dataVersion = new AtomicLong();
+
+    private final ToDoMemoryPersistence persistence;
+
+    public ToDoInMemoryRepository() {
+        this(null);
+    }
+
+    // Used when todos.memory.persistence.enabled=true, the store then survives restarts
+    @Autowired(required = false)
+    public ToDoInMemoryRepository(ToDoMemoryPersistence persistence) {
+        this.persistence = persistence;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Loads the persisted rows before the repository is used, nothing to do without persistence.
+     * Replay only fills the map, so a To Do written many times in the log is indexed once, and
+     * the indexes are then built from the final rows on every core.
+     */
+    @PostConstruct
+    public void recover() {
+        if (persistence != null) {
+            persistence.open(toDo -> database.put(toDo.getId(), toDo), database::remove, database.values());
+            // Each row is indexed by one thread only, the indexes themselves are concurrent
+            database.values().parallelStream().forEach(toDo -> {
+                index.add(toDo);
+                statistics.add(toDo);
+                textIndex.add(toDo.getId(), toDo.getText());
+            });
+            dataVersion.incrementAndGet();
+        }
+    }
+
+    // Size gauges, registered by Spring Boot for every MeterBinder bean
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("todos.memory.size", database, Map::size)
+            .description("To Dos held by the in-memory repository")
+            .register(registry);
+        Gauge.builder("todos.memory.text.index.grams", textIndex, ToDoTextIndex::size)
+            .description("Distinct trigrams in the text index")
+            .register(registry);
+        for (Priority priority : Priority.values()) {
+            for (Boolean done : new Boolean[] { false, true }) {
+                Gauge.builder("todos.memory.index.rows", index, ordered -> ordered.count(done, priority))
+                    .description("Rows of one partition of the ordered index")
+                    .tags("priority", priority.name(), "done", done.toString())
+                    .register(registry);
+            }
+        }
+    }
 
+    /**
+     * Compare-and-set on the version, like the optimistic locking of ToDoDBRepository: a To Do
+     * read at some version is only saved over that same version. A To Do without a version is
+     * saved whatever the stored one. The saved To Do, and the argument, get the next version.
+     */
     @Override
     public ToDo save(ToDo toDo) {
         if (toDo.getId() == null) {
             toDo.setId(UUID.randomUUID());
         }
-        database.put(toDo.getId(), toDo);
+        long logPosition = 0;
+        Lock lock = lockFor(toDo.getId());
+        lock.lock();
+        try {
+            ToDo current = database.get(toDo.getId());
+            checkVersion(toDo.getId(), toDo.getVersion(), current);
+            ToDo snapshot = new ToDo(toDo);
+            snapshot.setVersion(nextVersion(current));
+            store(snapshot);
+            // Logged under the lock, so the log has the writes of an id in the order they were applied
+            if (persistence != null) {
+                logPosition = persistence.logSave(snapshot);
+            }
+            toDo.setVersion(snapshot.getVersion());
+        } finally {
+            lock.unlock();
+        }
+        if (persistence != null) {
+            persistence.awaitDurable(logPosition);
+        }
 
         return toDo;
     }
 
+    // Puts a To Do as it is, version included, for ToDoTieredRepository to warm up from the database
+    public void load(ToDo toDo) {
+        Lock lock = lockFor(toDo.getId());
+        lock.lock();
+        try {
+            store(new ToDo(toDo));
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public Optional<ToDo> findById(UUID id) {
-        return Optional.ofNullable(database.get(id));
+        ToDo toDo = database.get(id);
+        return toDo == null ? Optional.empty() : Optional.of(new ToDo(toDo));
+    }
+
+    /**
+     * All or nothing, like the transaction around the saveAll of ToDoDBRepository. The locks of
+     * every id of the batch are held while all the versions are checked, and a version conflict
+     * throws before anything is stored. Readers can still see the batch half applied.
+     */
+    @Override
+    public List<ToDo> saveBatch(List<ToDo> toDos) {
+        for (ToDo toDo : toDos) {
+            if (toDo.getId() == null) {
+                toDo.setId(UUID.randomUUID());
+            }
+        }
+        long logPosition = 0;
+        List<Lock> held = lockAll(toDos);
+        try {
+            // The same id twice is checked against the version its first write gives it
+            Map<UUID, ToDo> written = new HashMap<>();
+            List<ToDo> snapshots = new ArrayList<>(toDos.size());
+            for (ToDo toDo : toDos) {
+                ToDo current = written.containsKey(toDo.getId()) ? written.get(toDo.getId()) : database.get(toDo.getId());
+                checkVersion(toDo.getId(), toDo.getVersion(), current);
+                ToDo snapshot = new ToDo(toDo);
+                snapshot.setVersion(nextVersion(current));
+                written.put(snapshot.getId(), snapshot);
+                snapshots.add(snapshot);
+            }
+            for (int i = 0; i < snapshots.size(); i++) {
+                store(snapshots.get(i));
+                if (persistence != null) {
+                    logPosition = persistence.logSave(snapshots.get(i));
+                }
+                toDos.get(i).setVersion(snapshots.get(i).getVersion());
+            }
+        } finally {
+            held.forEach(Lock::unlock);
+        }
+        if (persistence != null) {
+            persistence.awaitDurable(logPosition);
+        }
+        return new ArrayList<>(toDos);
+    }
+
+    @Override
+    public List<ToDo> findAllById(Iterable<UUID> ids) {
+        List<ToDo> found = new ArrayList<>();
+        for (UUID id : ids) {
+            findById(id).ifPresent(found::add);
+        }
+        return found;
     }
 
+    // Without a version check, like the single DELETE statement of ToDoDBRepository
+    @Override
+    public void deleteBatch(List<ToDo> toDos) {
+        toDos.forEach(toDo -> delete(toDo.getId(), current -> true));
+    }
+
+    // Same version check as save, a To Do that is already gone is left alone
     @Override
     public void delete(ToDo toDo) {
-        database.remove(toDo.getId());
+        delete(toDo.getId(), current -> {
+            checkVersion(toDo.getId(), toDo.getVersion(), current);
+            return true;
+        });
+    }
+
+    @Override
+    public int markDone(UUID id, Date doneDate, Long expectedVersion) {
+        return update(id, expectedVersion, toDo -> {
+            toDo.setDone(true);
+            if (toDo.getDoneDate() == null) {
+                toDo.setDoneDate(doneDate);
+            }
+        });
+    }
+
+    @Override
+    public int markUndone(UUID id, Long expectedVersion) {
+        return update(id, expectedVersion, toDo -> {
+            toDo.setDone(false);
+            toDo.setDoneDate(null);
+        });
+    }
+
+    @Override
+    public int deleteById(UUID id, Long expectedVersion) {
+        return delete(id, current -> matches(expectedVersion, current));
     }
 
     @Override
     public Page<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable) {
-        List<ToDo> filteredList = database.values().stream()
-            .filter(todo -> (done == null || todo.getDone().equals(done)) &&
-                            (text == null || todo.getText().toLowerCase().contains(text.toLowerCase())) && 
-                            (priority == null || todo.getPriority() == priority))
-            .sorted(createComparatorFromSort(pageable.getSort()))
+        if (text == null) {
+            return findPageFromIndex(done, priority, pageable);
+        }
+        // Index views are weakly consistent, so this never throws while other threads write.
+        // Only offset + page size matches are kept, the others are just counted.
+        String lowerText = text.toLowerCase();
+        BoundedTopK<ToDo> topK = new BoundedTopK<>(
+            BoundedTopK.capacityFor(pageable.getOffset(), pageable.getPageSize()),
+            ToDoKeyset.comparator(pageable.getSort()));
+        if (textIndex.canSearch(text)) {
+            // Only the rows sharing every trigram with the query are verified
+            for (UUID id : textIndex.candidates(text)) {
+                ToDo todo = database.get(id);
+                if (todo != null && (done == null || done.equals(todo.getDone())) &&
+                    (priority == null || todo.getPriority() == priority) &&
+                    todo.getText().toLowerCase().contains(lowerText)) {
+                    topK.offer(todo);
+                }
+            }
+        } else {
+            index.forEachRow(done, priority, todo -> {
+                if (todo.getText().toLowerCase().contains(lowerText)) {
+                    topK.offer(todo);
+                }
+            });
+        }
+
+        List<ToDo> paginatedList = topK.page(pageable.getOffset(), pageable.getPageSize()).stream()
+            .map(ToDo::new)
             .collect(Collectors.toList());
 
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), filteredList.size());
-            List<ToDo> paginatedList = filteredList.subList(start, end);
-
-            return new PageImpl<>(paginatedList, pageable, filteredList.size());
-    }
-
-    private Comparator<ToDo> createComparatorFromSort(Sort sort) {
-        Comparator<ToDo> comparator = null;
-    
-        for (Sort.Order order : sort) {
-            Comparator<ToDo> fieldComparator;
-    
-            switch (order.getProperty()) {
-                case "dueDate":
-                    fieldComparator = Comparator.comparing(ToDo::getDueDate, Comparator.nullsFirst(Comparator.naturalOrder()));
-                    break;
-                case "priority":
-                    fieldComparator = Comparator.comparing(ToDo::getPriority);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown sort field: " + order.getProperty());
-            }
-    
-            // Apply ascending/descending order
-            if (order.isDescending()) {
-                fieldComparator = fieldComparator.reversed();
-            }
-    
-            // Chain comparators
-            comparator = (comparator == null) ? fieldComparator : comparator.thenComparing(fieldComparator);
-        }
-    
-        return comparator == null ? Comparator.comparing(ToDo::getCreationDate) : comparator; // Default sort
-    }
-    
+        return new PageImpl<>(paginatedList, pageable, topK.getCount());
+    }
+
+    // Walks the ordered index and stops one match past the page, the other matches are never counted
+    @Override
+    public Slice<ToDo> findSliceByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable) {
+        if (text != null && textIndex.canSearch(text)) {
+            // Candidates come unordered, the page needs all of them anyway and counting them is free
+            Page<ToDo> page = findByDoneTextAndPriority(done, text, priority, pageable);
+            return new SliceImpl<>(page.getContent(), pageable, page.hasNext());
+        }
+        String lowerText = text == null ? null : text.toLowerCase();
+        Iterator<ToDo> rows = index.iterator(done, priority, pageable.getSort());
+        long skipped = 0;
+        List<ToDo> content = new ArrayList<>();
+        while (content.size() <= pageable.getPageSize() && rows.hasNext()) {
+            ToDo toDo = rows.next();
+            if (lowerText != null && !toDo.getText().toLowerCase().contains(lowerText)) {
+                continue;
+            }
+            if (skipped < pageable.getOffset()) {
+                skipped++;
+            } else {
+                content.add(new ToDo(toDo));
+            }
+        }
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    @Override
+    public long countByDoneTextAndPriority(Boolean done, String text, Priority priority) {
+        if (text == null) {
+            return index.count(done, priority);
+        }
+        return findByDoneTextAndPriority(done, text, priority, PageRequest.of(0, 1)).getTotalElements();
+    }
+
+    @Override
+    public Window<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, KeysetScrollPosition position, Sort sort, int limit) {
+        Iterator<ToDo> rows = position.isInitial()
+            ? index.iterator(done, priority, sort)
+            : index.iteratorAfter(done, priority, sort, ToDoKeyset.toProbe(position));
+        String lowerText = text == null ? null : text.toLowerCase();
+        List<ToDo> content = new ArrayList<>();
+        // One extra row tells whether there is a next window
+        while (content.size() <= limit && rows.hasNext()) {
+            ToDo toDo = rows.next();
+            if (lowerText == null || toDo.getText().toLowerCase().contains(lowerText)) {
+                content.add(new ToDo(toDo));
+            }
+        }
+        return ToDoKeyset.window(content, limit);
+    }
+
+    // Walks the ordered index in creation order, only the current row is copied
+    @Override
+    public void forEachMatching(Boolean done, String text, Priority priority, Consumer<ToDo> action) {
+        String lowerText = text == null ? null : text.toLowerCase();
+        Iterator<ToDo> rows = index.iterator(done, priority, Sort.unsorted());
+        while (rows.hasNext()) {
+            ToDo toDo = rows.next();
+            if (lowerText == null || toDo.getText().toLowerCase().contains(lowerText)) {
+                action.accept(new ToDo(toDo));
+            }
+        }
+    }
+
+    // Bumped by every write once the new state is visible to readers
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    // Maintained on every write, so reading it is O(1)
+    @Override
+    public ToDoStatisticsProjection computeStatistics() {
+        return statistics.snapshot();
+    }
+
+    // Walks the ordered index, so the cost is about offset + page size whatever the number of rows
+    private Page<ToDo> findPageFromIndex(Boolean done, Priority priority, Pageable pageable) {
+        long total = index.count(done, priority);
+        Iterator<ToDo> rows = index.iterator(done, priority, pageable.getSort());
+        for (long skipped = 0; skipped < pageable.getOffset() && rows.hasNext(); skipped++) {
+            rows.next();
+        }
+        List<ToDo> content = new ArrayList<>(Math.min(pageable.getPageSize(), (int) Math.min(total, Integer.MAX_VALUE)));
+        while (content.size() < pageable.getPageSize() && rows.hasNext()) {
+            content.add(new ToDo(rows.next()));
+        }
+        return new PageImpl<>(content, pageable, Math.max(total, pageable.getOffset() + content.size()));
+    }
+
+    // The change is applied to a copy of the stored To Do under the lock of its id, like a compute on the map
+    private int update(UUID id, Long expectedVersion, Consumer<ToDo> change) {
+        long logPosition = 0;
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            ToDo current = database.get(id);
+            if (current == null || !matches(expectedVersion, current)) {
+                return 0;
+            }
+            ToDo snapshot = new ToDo(current);
+            change.accept(snapshot);
+            snapshot.setVersion(nextVersion(current));
+            store(snapshot);
+            if (persistence != null) {
+                logPosition = persistence.logSave(snapshot);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (persistence != null) {
+            persistence.awaitDurable(logPosition);
+        }
+        return 1;
+    }
+
+    // Removes the To Do when the check, run under the lock of its id, allows it
+    private int delete(UUID id, Predicate<ToDo> check) {
+        long logPosition = 0;
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            ToDo current = database.get(id);
+            if (current == null || !check.test(current)) {
+                return 0;
+            }
+            evict(id);
+            if (persistence != null) {
+                logPosition = persistence.logDelete(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (logPosition > 0) {
+            persistence.awaitDurable(logPosition);
+        }
+        return 1;
+    }
+
+    // Must be called while holding the lock of the To Do id
+    private static void checkVersion(UUID id, Long version, ToDo current) {
+        if (version != null && (current == null || !version.equals(current.getVersion()))) {
+            throw new OptimisticLockingFailureException("To Do " + id + " was changed or deleted since version " + version);
+        }
+    }
+
+    private static boolean matches(Long version, ToDo current) {
+        return version == null || version.equals(current.getVersion());
+    }
+
+    private static long nextVersion(ToDo current) {
+        return current == null || current.getVersion() == null ? 0 : current.getVersion() + 1;
+    }
+
+    // Must be called while holding the lock of the To Do id
+    private void store(ToDo snapshot) {
+        ToDo previous = database.put(snapshot.getId(), snapshot);
+        index.remove(previous);
+        index.add(snapshot);
+        statistics.remove(previous);
+        statistics.add(snapshot);
+        if (previous == null || !Objects.equals(previous.getText(), snapshot.getText())) {
+            textIndex.remove(snapshot.getId(), previous == null ? null : previous.getText());
+            textIndex.add(snapshot.getId(), snapshot.getText());
+        }
+        dataVersion.incrementAndGet();
+    }
+
+    // Must be called while holding the lock of the To Do id
+    private ToDo evict(UUID id) {
+        ToDo previous = database.remove(id);
+        index.remove(previous);
+        statistics.remove(previous);
+        if (previous != null) {
+            textIndex.remove(previous.getId(), previous.getText());
+            dataVersion.incrementAndGet();
+        }
+        return previous;
+    }
+
+    private Lock lockFor(UUID id) {
+        return locks[stripeOf(id)];
+    }
+
+    // Every stripe lock the ids need, taken in stripe order so that two batches never wait on each other
+    private List<Lock> lockAll(List<ToDo> toDos) {
+        boolean[] needed = new boolean[LOCK_STRIPES];
+        toDos.forEach(toDo -> needed[stripeOf(toDo.getId())] = true);
+        List<Lock> held = new ArrayList<>();
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            if (needed[stripe]) {
+                locks[stripe].lock();
+                held.add(locks[stripe]);
+            }
+        }
+        return held;
+    }
+
+    private static int stripeOf(UUID id) {
+        return Math.floorMod(id.hashCode(), LOCK_STRIPES);
+    }
+
 }
@@ -0,0 +1,146 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+
+/**
+ * Keyset (cursor) pagination helpers shared by every repository.
+ * The requested sort is completed with tiebreakers into a total order: the due date sort is
+ * followed by the id in the same direction, any other sort by creation date and id ascending.
+ * Null due and creation dates sort first when ascending and last when descending.
+ * A cursor carries the keys of the last row returned, so the next page starts right after it.
+ */
+public final class ToDoKeyset {
+    public static final String DUE_DATE = "dueDate";
+    public static final String PRIORITY = "priority";
+    public static final String CREATION_DATE = "creationDate";
+    public static final String ID = "id";
+
+    private static final String SEPARATOR = "|";
+
+    private ToDoKeyset() {
+    }
+
+    // Requested orders without repeated properties, followed by the tiebreakers
+    public static List<Sort.Order> totalOrder(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        Sort.Order dueDateOrder = null;
+        for (Sort.Order order : sort) {
+            if (!DUE_DATE.equals(order.getProperty()) && !PRIORITY.equals(order.getProperty())) {
+                throw new IllegalArgumentException("Unknown sort field: " + order.getProperty());
+            }
+            if (seen.add(order.getProperty())) {
+                orders.add(order);
+                if (DUE_DATE.equals(order.getProperty())) {
+                    dueDateOrder = order;
+                }
+            }
+        }
+        if (dueDateOrder == null) {
+            orders.add(Sort.Order.asc(CREATION_DATE));
+            orders.add(Sort.Order.asc(ID));
+        } else {
+            orders.add(new Sort.Order(dueDateOrder.getDirection(), ID));
+        }
+        return orders;
+    }
+
+    public static Comparator<ToDo> comparator(Sort sort) {
+        Comparator<ToDo> comparator = null;
+        for (Sort.Order order : totalOrder(sort)) {
+            Comparator<ToDo> fieldComparator = switch (order.getProperty()) {
+                case DUE_DATE -> Comparator.comparing(ToDo::getDueDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case PRIORITY -> Comparator.comparing(ToDo::getPriority);
+                case CREATION_DATE -> Comparator.comparing(ToDo::getCreationDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+                default -> Comparator.comparing(ToDo::getId);
+            };
+            if (order.isDescending()) {
+                fieldComparator = fieldComparator.reversed();
+            }
+            comparator = comparator == null ? fieldComparator : comparator.thenComparing(fieldComparator);
+        }
+        return comparator;
+    }
+
+    // Window over the first limit rows, the presence of a row past the limit means there is a next window
+    public static Window<ToDo> window(List<ToDo> rows, int limit) {
+        boolean hasNext = rows.size() > limit;
+        List<ToDo> content = hasNext ? rows.subList(0, limit) : rows;
+        return Window.from(content, i -> positionAfter(content.get(i)), hasNext);
+    }
+
+    public static KeysetScrollPosition positionAfter(ToDo toDo) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(DUE_DATE, toDo.getDueDate());
+        keys.put(PRIORITY, toDo.getPriority());
+        keys.put(CREATION_DATE, toDo.getCreationDate());
+        keys.put(ID, toDo.getId());
+        return ScrollPosition.forward(keys);
+    }
+
+    // A detached To Do holding the keys of the position, to be compared with stored rows
+    public static ToDo toProbe(KeysetScrollPosition position) {
+        Map<String, Object> keys = position.getKeys();
+        if (!(keys.get(ID) instanceof UUID) || !(keys.get(PRIORITY) instanceof Priority)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        ToDo probe = new ToDo();
+        probe.setDueDate((Date) keys.get(DUE_DATE));
+        probe.setPriority((Priority) keys.get(PRIORITY));
+        probe.setCreationDate((Date) keys.get(CREATION_DATE));
+        probe.setId((UUID) keys.get(ID));
+        return probe;
+    }
+
+    // Opaque, URL-safe representation of a position returned by positionAfter()
+    public static String encode(KeysetScrollPosition position) {
+        ToDo probe = toProbe(position);
+        String raw = millis(probe.getDueDate()) + SEPARATOR + probe.getPriority().name() + SEPARATOR
+            + millis(probe.getCreationDate()) + SEPARATOR + probe.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetScrollPosition decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            ToDo probe = new ToDo();
+            probe.setDueDate(date(parts[0]));
+            probe.setPriority(Priority.valueOf(parts[1]));
+            probe.setCreationDate(date(parts[2]));
+            probe.setId(UUID.fromString(parts[3]));
+            return positionAfter(probe);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String millis(Date date) {
+        return date == null ? "" : Long.toString(date.getTime());
+    }
+
+    private static Date date(String millis) {
+        return millis.isEmpty() ? null : new Date(Long.parseLong(millis));
+    }
+}
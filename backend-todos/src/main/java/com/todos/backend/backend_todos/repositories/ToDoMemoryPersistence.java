@@ -0,0 +1,374 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional durability of ToDoInMemoryRepository (todos.memory.persistence.enabled=true).
+ * Every save and delete is appended to a ToDoWriteAheadLog, and a background task writes a
+ * snapshot of every row each snapshot-interval, after which the log before it is deleted.
+ * On startup the latest snapshot is loaded and the log is replayed from the position in its name.
+ * Records are decoded straight from the buffers they were read or mapped into, without a stream
+ * or a copy per record.
+ * Snapshots are taken while writes go on: a row changed during a snapshot may or may not be in
+ * it, but its log record comes after the snapshot position and is replayed anyway, and replaying
+ * a put or a delete again gives the same state.
+ */
+@Component
+@ConditionalOnProperty(name = "todos.memory.persistence.enabled", havingValue = "true")
+public class ToDoMemoryPersistence {
+
+    public enum FsyncPolicy {
+        // A write returns once it is on disk, writes waiting together share one fsync
+        ALWAYS,
+        // The log is forced every fsync-interval, a machine crash loses at most that much
+        INTERVAL,
+        // Left to the operating system, only a crash of the process is survived
+        NONE
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ToDoMemoryPersistence.class);
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte END = 0;
+    private static final int SNAPSHOT_MAGIC = 0x54444f53;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int SNAPSHOT_BUFFER = 1 << 20;
+    // Longest encoded To Do: id, three dates, flags, a 65535 byte text and the version
+    private static final int MAX_RECORD = 1 + 16 + 3 * 9 + 3 + 2 + 65_535 + 8;
+
+    private final Path directory;
+    private final FsyncPolicy fsync;
+    private final Duration fsyncInterval;
+    private final Duration snapshotInterval;
+    private final int segmentSize;
+
+    private ToDoWriteAheadLog wal;
+    private Iterable<ToDo> rows;
+    private ScheduledExecutorService snapshots;
+
+    public ToDoMemoryPersistence(
+        @Value("${todos.memory.persistence.directory:data}") Path directory,
+        @Value("${todos.memory.persistence.fsync:always}") FsyncPolicy fsync,
+        @Value("${todos.memory.persistence.fsync-interval:10ms}") Duration fsyncInterval,
+        @Value("${todos.memory.persistence.snapshot-interval:5m}") Duration snapshotInterval,
+        @Value("${todos.memory.persistence.segment-size:64MB}") DataSize segmentSize
+    ) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.fsyncInterval = fsyncInterval;
+        this.snapshotInterval = snapshotInterval;
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes());
+    }
+
+    /**
+     * Restores the stored rows through the callbacks, in the order they were written, then starts
+     * logging and the periodic snapshots of the rows (a live view of the repository).
+     */
+    public synchronized void open(Consumer<ToDo> restore, Consumer<UUID> forget, Iterable<ToDo> rows) {
+        if (wal != null) {
+            throw new IllegalStateException("Already open");
+        }
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            deleteFiles(TEMPORARY_SUFFIX, Long.MAX_VALUE);
+            long position = loadLatestSnapshot(restore);
+            wal = new ToDoWriteAheadLog(directory, segmentSize, position, payload -> replay(payload, restore, forget));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Recovered the in-memory To Dos from {} in {} ms", directory.toAbsolutePath(), (System.nanoTime() - started) / 1_000_000);
+
+        this.rows = rows;
+        if (fsync != FsyncPolicy.NONE) {
+            wal.startFlusher(fsync == FsyncPolicy.INTERVAL ? fsyncInterval : null);
+        }
+        snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> Thread.ofPlatform().daemon().name("todos-snapshot").unstarted(runnable));
+        long period = snapshotInterval.toMillis();
+        snapshots.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (RuntimeException e) {
+                log.error("Snapshot of the in-memory To Dos failed, the log is kept", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Both return the log position to wait for with awaitDurable()
+    public long logSave(ToDo toDo) {
+        return wal.append(encode(PUT, toDo, null));
+    }
+
+    public long logDelete(UUID id) {
+        return wal.append(encode(DELETE, null, id));
+    }
+
+    // Only waits with the ALWAYS policy, the other ones acknowledge writes before they are on disk
+    public void awaitDurable(long position) {
+        if (fsync == FsyncPolicy.ALWAYS) {
+            wal.awaitDurable(position);
+        }
+    }
+
+    /**
+     * Writes every row to a new snapshot named after the current log position, then deletes the
+     * older snapshots and log segments. The file is only renamed into place once complete and on disk.
+     */
+    public synchronized void snapshot() {
+        if (wal == null) {
+            throw new IllegalStateException("Not open");
+        }
+        long position = wal.end();
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, position, SNAPSHOT_SUFFIX));
+        if (Files.exists(target)) {
+            // Nothing was written since the last snapshot
+            return;
+        }
+        Path temporary = directory.resolve(target.getFileName() + TEMPORARY_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                out.writeInt(SNAPSHOT_MAGIC);
+                for (ToDo toDo : rows) {
+                    out.writeByte(PUT);
+                    writeToDo(out, toDo);
+                }
+                out.writeByte(END);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            deleteFiles(SNAPSHOT_SUFFIX, position);
+            wal.deleteBefore(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A last snapshot leaves no log to replay on the next startup
+    @PreDestroy
+    public synchronized void close() {
+        if (wal == null) {
+            return;
+        }
+        snapshots.shutdownNow();
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("Final snapshot of the in-memory To Dos failed, the log is kept", e);
+        }
+        wal.close();
+        wal = null;
+    }
+
+    // Log segments currently on disk
+    public int logSegments() {
+        return wal.segmentCount();
+    }
+
+    // Highest complete snapshot, 0 when there is none
+    private long loadLatestSnapshot(Consumer<ToDo> restore) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().startsWith(SNAPSHOT_PREFIX)
+                    && file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        }
+        if (files.isEmpty()) {
+            return 0;
+        }
+        Path latest = files.get(0);
+        try (FileChannel channel = FileChannel.open(latest, StandardOpenOption.READ)) {
+            ByteBuffer in = ByteBuffer.allocate(SNAPSHOT_BUFFER).limit(0);
+            boolean more = refill(channel, in);
+            if (in.remaining() < Integer.BYTES || in.getInt() != SNAPSHOT_MAGIC) {
+                throw new IllegalStateException("Not a snapshot: " + latest);
+            }
+            while (true) {
+                // A record never straddles the end of the buffer
+                if (more && in.remaining() < MAX_RECORD) {
+                    more = refill(channel, in);
+                }
+                byte type = in.get();
+                if (type == END) {
+                    break;
+                }
+                if (type != PUT) {
+                    throw new IllegalStateException("Unknown record type " + type + " in " + latest);
+                }
+                restore.accept(readToDo(in));
+            }
+        }
+        return positionOf(latest);
+    }
+
+    // Moves the unread bytes to the front and reads until the buffer is full, false once the file ended
+    private static boolean refill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.compact();
+        int read = 0;
+        while (buffer.hasRemaining() && (read = channel.read(buffer)) >= 0) {
+            // Keep reading
+        }
+        buffer.flip();
+        return read >= 0;
+    }
+
+    // The payload is a slice of the mapped log segment
+    private static void replay(ByteBuffer payload, Consumer<ToDo> restore, Consumer<UUID> forget) {
+        byte type = payload.get();
+        if (type == PUT) {
+            restore.accept(readToDo(payload));
+        } else if (type == DELETE) {
+            forget.accept(new UUID(payload.getLong(), payload.getLong()));
+        } else {
+            throw new IllegalStateException("Unknown log record type " + type);
+        }
+    }
+
+    // Files of the directory with the suffix and a position before the given one
+    private void deleteFiles(String suffix, long before) throws IOException {
+        try (Stream<Path> list = Files.list(directory)) {
+            for (Path file : list.filter(file -> file.getFileName().toString().endsWith(suffix)).toList()) {
+                if (suffix.equals(TEMPORARY_SUFFIX) || positionOf(file) < before) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static long positionOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(byte type, ToDo toDo, UUID id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(192);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(type);
+            if (toDo != null) {
+                writeToDo(out, toDo);
+            } else {
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Binary form of a To Do, shared by the log and the snapshots
+    private static void writeToDo(DataOutput out, ToDo toDo) throws IOException {
+        out.writeLong(toDo.getId().getMostSignificantBits());
+        out.writeLong(toDo.getId().getLeastSignificantBits());
+        writeDate(out, toDo.getCreationDate());
+        writeDate(out, toDo.getDueDate());
+        writeDate(out, toDo.getDoneDate());
+        out.writeByte(toDo.getDone() == null ? -1 : toDo.getDone() ? 1 : 0);
+        out.writeByte(toDo.getPriority() == null ? -1 : toDo.getPriority().ordinal());
+        out.writeBoolean(toDo.getText() != null);
+        if (toDo.getText() != null) {
+            out.writeUTF(toDo.getText());
+        }
+        out.writeLong(toDo.getVersion() == null ? -1 : toDo.getVersion());
+    }
+
+    // Reads what writeToDo() wrote, ByteBuffer is big-endian like DataOutput
+    private static ToDo readToDo(ByteBuffer in) {
+        ToDo toDo = new ToDo();
+        toDo.setId(new UUID(in.getLong(), in.getLong()));
+        toDo.setCreationDate(readDate(in));
+        toDo.setDueDate(readDate(in));
+        toDo.setDoneDate(readDate(in));
+        byte done = in.get();
+        toDo.setDone(done < 0 ? null : done == 1);
+        byte priority = in.get();
+        toDo.setPriority(priority < 0 ? null : Priority.values()[priority]);
+        toDo.setText(in.get() != 0 ? readText(in) : null);
+        long version = in.getLong();
+        toDo.setVersion(version < 0 ? null : version);
+        return toDo;
+    }
+
+    // The modified UTF-8 of DataOutput.writeUTF(), with a shortcut for the common all-ASCII text
+    private static String readText(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (in.hasArray()) {
+            byte[] array = in.array();
+            int start = in.arrayOffset() + in.position();
+            int ascii = 0;
+            while (ascii < length && array[start + ascii] >= 0) {
+                ascii++;
+            }
+            if (ascii == length) {
+                in.position(in.position() + length);
+                return new String(array, start, length, StandardCharsets.ISO_8859_1);
+            }
+        }
+        char[] chars = new char[length];
+        int count = 0;
+        int end = in.position() + length;
+        while (in.position() < end) {
+            int first = in.get() & 0xff;
+            if (first < 0x80) {
+                chars[count++] = (char) first;
+            } else if ((first & 0xe0) == 0xc0) {
+                chars[count++] = (char) (((first & 0x1f) << 6) | (in.get() & 0x3f));
+            } else {
+                chars[count++] = (char) (((first & 0x0f) << 12) | ((in.get() & 0x3f) << 6) | (in.get() & 0x3f));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static void writeDate(DataOutput out, Date date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.getTime());
+        }
+    }
+
+    private static Date readDate(ByteBuffer in) {
+        return in.get() != 0 ? new Date(in.getLong()) : null;
+    }
+}
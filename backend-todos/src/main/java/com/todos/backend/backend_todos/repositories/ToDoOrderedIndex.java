@@ -0,0 +1,222 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.Sort;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+
+/**
+ * Ordered secondary index over the To Do snapshots of the in-memory repository.
+ * Rows are partitioned by priority and done state, and every partition keeps two skip lists,
+ * one ordered by creation date and one by due date (both with the id as tiebreaker).
+ * Any sort accepted by the service is answered by merging the matching partitions in the total
+ * order of ToDoKeyset, so reading a page costs about offset + page size instead of sorting every
+ * row, and a keyset seek costs about the page size.
+ * Indexed snapshots must never be mutated, writers replace them instead.
+ */
+class ToDoOrderedIndex {
+
+    static final Comparator<ToDo> BY_CREATION_DATE = Comparator
+        .comparing(ToDo::getCreationDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(ToDo::getId);
+    static final Comparator<ToDo> BY_DUE_DATE = Comparator
+        .comparing(ToDo::getDueDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(ToDo::getId);
+
+    private static final UUID MIN_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+    private static final UUID MAX_ID = new UUID(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final Map<Priority, Partition[]> partitions = new EnumMap<>(Priority.class);
+
+    ToDoOrderedIndex() {
+        for (Priority priority : Priority.values()) {
+            partitions.put(priority, new Partition[] { new Partition(), new Partition() });
+        }
+    }
+
+    // Must be called while holding the lock of the To Do id
+    void add(ToDo toDo) {
+        partitionOf(toDo).add(toDo);
+    }
+
+    // Must be called while holding the lock of the To Do id
+    void remove(ToDo toDo) {
+        if (toDo != null) {
+            partitionOf(toDo).remove(toDo);
+        }
+    }
+
+    long count(Boolean done, Priority priority) {
+        long count = 0;
+        for (Partition partition : matching(done, priority)) {
+            count += partition.size.get();
+        }
+        return count;
+    }
+
+    // Visits the rows of every partition matching the done and priority filters, in no particular order
+    void forEachRow(Boolean done, Priority priority, Consumer<ToDo> action) {
+        for (Partition partition : matching(done, priority)) {
+            partition.byCreationDate.forEach(action);
+        }
+    }
+
+    // Rows matching the done and priority filters in the total order of ToDoKeyset.comparator(sort)
+    Iterator<ToDo> iterator(Boolean done, Priority priority, Sort sort) {
+        List<Iterator<ToDo>> sources = new ArrayList<>();
+        for (Partition partition : matching(done, priority)) {
+            sources.add(partition.walk(sort).iterator());
+        }
+        return new MergingIterator(sources, ToDoKeyset.comparator(sort));
+    }
+
+    /**
+     * Same as iterator(), but starting right after the row described by the probe (keyset seek).
+     * Every partition jumps straight to its first row after the probe, so the cost does not
+     * depend on how many rows come before it.
+     */
+    Iterator<ToDo> iteratorAfter(Boolean done, Priority priority, Sort sort, ToDo probe) {
+        List<Sort.Order> orders = ToDoKeyset.totalOrder(sort);
+        List<String> properties = orders.stream().map(Sort.Order::getProperty).toList();
+        int priorityPosition = properties.indexOf(ToDoKeyset.PRIORITY);
+        int datePosition = Math.max(properties.indexOf(ToDoKeyset.DUE_DATE), properties.indexOf(ToDoKeyset.CREATION_DATE));
+        Sort.Order priorityOrder = priorityPosition < 0 ? null : orders.get(priorityPosition);
+        boolean dateDescending = orders.get(datePosition).isDescending();
+
+        List<Iterator<ToDo>> sources = new ArrayList<>();
+        for (Priority partitionPriority : Priority.values()) {
+            if (priority != null && priority != partitionPriority) {
+                continue;
+            }
+            // How the rows of this partition compare with the probe on priority alone, in sort direction
+            int priorityComparison = 0;
+            if (priorityOrder != null) {
+                priorityComparison = partitionPriority.compareTo(probe.getPriority());
+                priorityComparison = priorityOrder.isDescending() ? -priorityComparison : priorityComparison;
+            }
+            for (int state = 0; state < 2; state++) {
+                if (done != null && (done ? 1 : 0) != state) {
+                    continue;
+                }
+                NavigableSet<ToDo> rows = partitions.get(partitionPriority)[state].walk(sort);
+                if (priorityComparison != 0 && priorityPosition < datePosition) {
+                    // Priority decides before the date: the whole partition is either after or before the probe
+                    if (priorityComparison > 0) {
+                        sources.add(rows.iterator());
+                    }
+                    continue;
+                }
+                ToDo start = new ToDo(probe);
+                if (priorityComparison > 0) {
+                    // Rows with the probe date come after it, start at the first of them
+                    start.setId(dateDescending ? MAX_ID : MIN_ID);
+                    sources.add(rows.tailSet(start, true).iterator());
+                } else {
+                    // Rows with the probe date come before it (or after it by id only)
+                    if (priorityComparison < 0) {
+                        start.setId(dateDescending ? MIN_ID : MAX_ID);
+                    }
+                    sources.add(rows.tailSet(start, false).iterator());
+                }
+            }
+        }
+        return new MergingIterator(sources, ToDoKeyset.comparator(sort));
+    }
+
+    private List<Partition> matching(Boolean done, Priority priority) {
+        List<Partition> matching = new ArrayList<>();
+        for (Priority partitionPriority : Priority.values()) {
+            if (priority != null && priority != partitionPriority) {
+                continue;
+            }
+            for (int state = 0; state < 2; state++) {
+                if (done == null || (done ? 1 : 0) == state) {
+                    matching.add(partitions.get(partitionPriority)[state]);
+                }
+            }
+        }
+        return matching;
+    }
+
+    private Partition partitionOf(ToDo toDo) {
+        return partitions.get(toDo.getPriority())[Boolean.TRUE.equals(toDo.getDone()) ? 1 : 0];
+    }
+
+    private static class Partition {
+        private final NavigableSet<ToDo> byCreationDate = new ConcurrentSkipListSet<>(BY_CREATION_DATE);
+        private final NavigableSet<ToDo> byDueDate = new ConcurrentSkipListSet<>(BY_DUE_DATE);
+        private final AtomicInteger size = new AtomicInteger();
+
+        void add(ToDo toDo) {
+            if (byCreationDate.add(toDo)) {
+                size.incrementAndGet();
+            }
+            byDueDate.add(toDo);
+        }
+
+        void remove(ToDo toDo) {
+            if (byCreationDate.remove(toDo)) {
+                size.decrementAndGet();
+            }
+            byDueDate.remove(toDo);
+        }
+
+        // The skip list to walk for a sort, already in the sort direction
+        NavigableSet<ToDo> walk(Sort sort) {
+            Sort.Order dueDateOrder = sort.getOrderFor(ToDoKeyset.DUE_DATE);
+            if (dueDateOrder == null) {
+                return byCreationDate;
+            }
+            return dueDateOrder.isDescending() ? byDueDate.descendingSet() : byDueDate;
+        }
+    }
+
+    // K-way merge of already ordered iterators
+    private static class MergingIterator implements Iterator<ToDo> {
+        private final PriorityQueue<Head> heads;
+
+        MergingIterator(List<Iterator<ToDo>> sources, Comparator<ToDo> comparator) {
+            heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> comparator.compare(a.value, b.value));
+            for (Iterator<ToDo> source : sources) {
+                if (source.hasNext()) {
+                    heads.add(new Head(source.next(), source));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public ToDo next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            ToDo value = head.value;
+            if (head.source.hasNext()) {
+                heads.add(new Head(head.source.next(), head.source));
+            }
+            return value;
+        }
+
+        private record Head(ToDo value, Iterator<ToDo> source) {
+        }
+    }
+}
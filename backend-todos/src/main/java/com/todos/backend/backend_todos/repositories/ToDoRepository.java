@@ -1,11 +1,19 @@
 package com.todos.backend.backend_todos.repositories;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
 import com.todos.backend.backend_todos.models.Priority;
 import com.todos.backend.backend_todos.models.ToDo;
 
@@ -13,5 +21,26 @@ public interface ToDoRepository {
     public ToDo save(ToDo todo);
     public Optional<ToDo> findById(UUID id);
     public void delete(ToDo toDo);
+    // State changes written in one step without reading the To Do first. They return the rows changed:
+    // 0 when the id is missing or not at expectedVersion (null skips that check). markDone keeps an existing done date
+    public int markDone(UUID id, Date doneDate, Long expectedVersion);
+    public int markUndone(UUID id, Long expectedVersion);
+    public int deleteById(UUID id, Long expectedVersion);
+    // Bulk variants used by the batch endpoints, missing ids are skipped by findAllById
+    public List<ToDo> saveBatch(List<ToDo> toDos);
+    public List<ToDo> findAllById(Iterable<UUID> ids);
+    public void deleteBatch(List<ToDo> toDos);
     public Page<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable);
+    // Same page without its total: one row past the page is read to know whether a next page exists
+    public Slice<ToDo> findSliceByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable);
+    public long countByDoneTextAndPriority(Boolean done, String text, Priority priority);
+    // Keyset pagination: up to limit rows after the position, in the total order of ToDoKeyset
+    public Window<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, KeysetScrollPosition position, Sort sort, int limit);
+
+    // Every matching To Do in creation order (slot order for ToDoColumnarRepository), handed over one at a time so the whole result is never held in memory
+    public void forEachMatching(Boolean done, String text, Priority priority, Consumer<ToDo> action);
+
+    public ToDoStatisticsProjection computeStatistics();
+    // Cheap, monotonically increasing version of the stored data, it changes after every visible write
+    public long getDataVersion();
 }
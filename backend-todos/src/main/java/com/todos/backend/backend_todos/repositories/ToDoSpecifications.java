@@ -0,0 +1,120 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Criteria building blocks for ToDoDBRepository.
+ */
+public final class ToDoSpecifications {
+    private static final String DONE = "done";
+
+    private ToDoSpecifications() {
+    }
+
+    // Filters of GET /todos, a null value adds no predicate at all rather than an IS NULL OR test
+    public static Specification<ToDo> matching(Boolean done, String text, Priority priority) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (done != null) {
+                predicates.add(cb.equal(root.get(DONE), done));
+            }
+            if (text != null) {
+                predicates.add(cb.like(cb.lower(root.get("text")), "%" + text.toLowerCase() + "%"));
+            }
+            if (priority != null) {
+                predicates.add(cb.equal(root.get(ToDoKeyset.PRIORITY), priority));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Keyset seek predicate: rows strictly after the probe in the total order of ToDoKeyset,
+     * i.e. (k1 after) OR (k1 equal AND k2 after) OR ... Null dates are the smallest values,
+     * matching the NULLS FIRST / NULLS LAST ordering of sortFor().
+     */
+    public static Specification<ToDo> after(Sort sort, ToDo probe) {
+        return (root, query, cb) -> {
+            List<Sort.Order> orders = ToDoKeyset.totalOrder(sort);
+            List<Predicate> alternatives = new ArrayList<>();
+            List<Predicate> equalSoFar = new ArrayList<>();
+            for (Sort.Order order : orders) {
+                Object key = keyOf(probe, order.getProperty());
+                List<Predicate> alternative = new ArrayList<>(equalSoFar);
+                alternative.add(isAfter(cb, root, order, key));
+                alternatives.add(cb.and(alternative.toArray(Predicate[]::new)));
+                equalSoFar.add(isEqual(cb, root, order.getProperty(), key));
+            }
+            return cb.or(alternatives.toArray(Predicate[]::new));
+        };
+    }
+
+    // Database sort equivalent to ToDoKeyset.comparator(sort)
+    public static Sort sortFor(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : ToDoKeyset.totalOrder(sort)) {
+            orders.add(order.isAscending() ? order.nullsFirst() : order.nullsLast());
+        }
+        return Sort.by(orders);
+    }
+
+    /**
+     * sortFor(sort) led by the filter columns bound to one value, so that it starts like an index
+     * of ToDo: (done, priority, due_date, id) in either direction, (done, creation_date, id) or,
+     * for a priority filter alone, (priority, creation_date, id).
+     * The extra keys do not change the order of the rows, but a database such as H2 only reads an
+     * index in order, and stops after the page, when the ORDER BY begins with the index columns.
+     */
+    public static Sort sortFor(Sort sort, Boolean done, Priority priority) {
+        List<Sort.Order> orders = new ArrayList<>();
+        Sort total = sortFor(sort);
+        if (done != null) {
+            orders.add(Sort.Order.asc(DONE));
+        }
+        String leading = total.iterator().next().getProperty();
+        if (priority != null && (ToDoKeyset.DUE_DATE.equals(leading) || done == null && ToDoKeyset.CREATION_DATE.equals(leading))) {
+            orders.add(Sort.Order.asc(ToDoKeyset.PRIORITY));
+        }
+        total.forEach(orders::add);
+        return Sort.by(orders);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Predicate isAfter(CriteriaBuilder cb, Root<ToDo> root, Sort.Order order, Object key) {
+        Expression path = root.get(order.getProperty());
+        if (key == null) {
+            // Null is the smallest value: everything non null is after it ascending, nothing descending
+            return order.isAscending() ? cb.isNotNull(path) : cb.disjunction();
+        }
+        Comparable value = (Comparable) key;
+        if (order.isAscending()) {
+            return cb.greaterThan(path, value);
+        }
+        return cb.or(cb.lessThan(path, value), cb.isNull(path));
+    }
+
+    private static Predicate isEqual(CriteriaBuilder cb, Root<ToDo> root, String property, Object key) {
+        return key == null ? cb.isNull(root.get(property)) : cb.equal(root.get(property), key);
+    }
+
+    private static Object keyOf(ToDo probe, String property) {
+        return switch (property) {
+            case ToDoKeyset.DUE_DATE -> probe.getDueDate();
+            case ToDoKeyset.PRIORITY -> probe.getPriority();
+            case ToDoKeyset.CREATION_DATE -> probe.getCreationDate();
+            default -> probe.getId();
+        };
+    }
+}
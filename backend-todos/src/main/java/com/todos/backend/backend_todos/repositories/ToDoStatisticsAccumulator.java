@@ -0,0 +1,72 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+
+/**
+ * Running totals behind GET /todos/stats: number of done To Dos and summed seconds between
+ * creation and done date, per priority. Writers apply every state change as remove(old) then
+ * add(new), so completing, uncompleting, re-prioritizing or deleting a To Do is O(1) and reading
+ * the statistics never scans the store.
+ */
+public class ToDoStatisticsAccumulator {
+    private final LongAdder[] done = new LongAdder[Priority.values().length];
+    private final LongAdder[] doneSeconds = new LongAdder[Priority.values().length];
+
+    public ToDoStatisticsAccumulator() {
+        for (int i = 0; i < done.length; i++) {
+            done[i] = new LongAdder();
+            doneSeconds[i] = new LongAdder();
+        }
+    }
+
+    public void add(ToDo toDo) {
+        if (counts(toDo)) {
+            done[toDo.getPriority().ordinal()].increment();
+            doneSeconds[toDo.getPriority().ordinal()].add(elapsedSeconds(toDo));
+        }
+    }
+
+    public void remove(ToDo toDo) {
+        if (counts(toDo)) {
+            done[toDo.getPriority().ordinal()].decrement();
+            doneSeconds[toDo.getPriority().ordinal()].add(-elapsedSeconds(toDo));
+        }
+    }
+
+    public ToDoStatisticsProjection snapshot() {
+        long low = done[Priority.LOW.ordinal()].sum();
+        long medium = done[Priority.MEDIUM.ordinal()].sum();
+        long high = done[Priority.HIGH.ordinal()].sum();
+        long lowSeconds = doneSeconds[Priority.LOW.ordinal()].sum();
+        long mediumSeconds = doneSeconds[Priority.MEDIUM.ordinal()].sum();
+        long highSeconds = doneSeconds[Priority.HIGH.ordinal()].sum();
+        return new Snapshot(low + medium + high, lowSeconds + mediumSeconds + highSeconds,
+            lowSeconds, low, mediumSeconds, medium, highSeconds, high);
+    }
+
+    // Only done To Dos with both dates take part in the statistics
+    private static boolean counts(ToDo toDo) {
+        return toDo != null && Boolean.TRUE.equals(toDo.getDone())
+            && toDo.getDoneDate() != null && toDo.getCreationDate() != null;
+    }
+
+    private static long elapsedSeconds(ToDo toDo) {
+        return (toDo.getDoneDate().getTime() - toDo.getCreationDate().getTime()) / 1000;
+    }
+
+    private record Snapshot(
+        long getTotalDone,
+        long getTotalDoneSeconds,
+        long getTotalLowDoneSeconds,
+        long getTotalLowDone,
+        long getTotalMediumDoneSeconds,
+        long getTotalMediumDone,
+        long getTotalHighDoneSeconds,
+        long getTotalHighDone
+    ) implements ToDoStatisticsProjection {
+    }
+}
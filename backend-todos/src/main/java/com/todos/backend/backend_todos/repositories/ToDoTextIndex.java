@@ -0,0 +1,94 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram inverted index over the case-folded To Do text.
+ * Every text is lower-cased and split into overlapping three character grams, each gram keeps
+ * the ids of the texts containing it. A substring query is answered by intersecting the posting
+ * lists of the query grams; the resulting ids are only candidates and must still be verified
+ * with a real contains check, since grams may appear at different positions.
+ */
+class ToDoTextIndex {
+    static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, Set<UUID>> postings = new ConcurrentHashMap<>();
+
+    // Must be called while holding the lock of the To Do id
+    void add(UUID id, String text) {
+        for (long gram : grams(text)) {
+            postings.compute(gram, (key, ids) -> {
+                Set<UUID> result = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                result.add(id);
+                return result;
+            });
+        }
+    }
+
+    // Must be called while holding the lock of the To Do id
+    void remove(UUID id, String text) {
+        for (long gram : grams(text)) {
+            postings.computeIfPresent(gram, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    // The index can only narrow down queries long enough to contain a whole gram
+    boolean canSearch(String text) {
+        return text != null && text.toLowerCase().length() >= GRAM_LENGTH;
+    }
+
+    int size() {
+        return postings.size();
+    }
+
+    /**
+     * Ids of the texts that contain every gram of the query, a superset of the texts that
+     * contain the query itself. Returns an empty list as soon as one gram has no postings.
+     */
+    List<UUID> candidates(String text) {
+        List<Set<UUID>> lists = new ArrayList<>();
+        for (long gram : grams(text)) {
+            Set<UUID> ids = postings.get(gram);
+            if (ids == null) {
+                return List.of();
+            }
+            lists.add(ids);
+        }
+        // Walk the shortest posting list and probe the others
+        lists.sort(Comparator.comparingInt(Set::size));
+        List<UUID> candidates = new ArrayList<>();
+        for (UUID id : lists.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(id);
+            }
+            if (inAll) {
+                candidates.add(id);
+            }
+        }
+        return candidates;
+    }
+
+    // Distinct grams of the lower-cased text, each packed into a long (three UTF-16 chars)
+    private static Set<Long> grams(String text) {
+        Set<Long> grams = new HashSet<>();
+        if (text == null) {
+            return grams;
+        }
+        String folded = text.toLowerCase();
+        for (int i = 0; i + GRAM_LENGTH <= folded.length(); i++) {
+            grams.add(((long) folded.charAt(i) << 32) | ((long) folded.charAt(i + 1) << 16) | folded.charAt(i + 2));
+        }
+        return grams;
+    }
+}
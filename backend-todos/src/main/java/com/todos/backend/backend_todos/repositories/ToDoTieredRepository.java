@@ -0,0 +1,366 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Repository;
+
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Two-tier storage (todos.storage.mode=tiered): a ToDoInMemoryRepository serves every read and
+ * acknowledges every write, and ToDoDBRepository is written behind it.
+ * A written id is queued once until it is flushed, so repeated writes of a To Do become one
+ * database write of its latest state. The flusher waits up to flush-interval for a batch to
+ * fill, then writes up to batch-size To Dos in one transaction, as they are in memory at that
+ * time. Writers block while max-pending ids are waiting. The memory tier is loaded from the
+ * database on startup and the queue is drained on shutdown; a crash loses the queued writes.
+ * Once the flusher has drained the queue and stopped, writes go to the database in the calling
+ * thread, one writer per id at a time.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "todos.storage.mode", havingValue = "tiered")
+public class ToDoTieredRepository implements ToDoRepository, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ToDoTieredRepository.class);
+    private static final int LATE_WRITE_STRIPES = 64;
+
+    private final ToDoInMemoryRepository memory = new ToDoInMemoryRepository();
+    private final ToDoDBRepository database;
+    private final long flushIntervalNanos;
+    private final int batchSize;
+    private final int maxPending;
+
+    // Ids written in memory and not yet in the database, in the order they were first written
+    private final LinkedHashSet<UUID> pending = new LinkedHashSet<>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition batchFull = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private boolean running;
+    // Set by the flusher when it stops, nothing takes queued ids any more
+    private boolean drained;
+    private Thread flusher;
+    // Taken by the writes made in the calling thread once the queue is drained
+    private final Lock[] lateWriteLocks = new Lock[LATE_WRITE_STRIPES];
+
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ToDoTieredRepository(
+        ToDoDBRepository database,
+        @Value("${todos.tiered.flush-interval:50ms}") Duration flushInterval,
+        @Value("${todos.tiered.batch-size:500}") int batchSize,
+        @Value("${todos.tiered.max-pending:10000}") int maxPending
+    ) {
+        this.database = database;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        for (int i = 0; i < LATE_WRITE_STRIPES; i++) {
+            lateWriteLocks[i] = new ReentrantLock();
+        }
+    }
+
+    // Loads every stored To Do into memory before the repository is used, then starts the flusher
+    @PostConstruct
+    public void start() {
+        long started = System.nanoTime();
+        database.forEachMatching(null, null, null, memory::load);
+        log.info("Loaded {} To Dos from the database in {} ms", memory.countByDoneTextAndPriority(null, null, null),
+            (System.nanoTime() - started) / 1_000_000);
+        lock.lock();
+        try {
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+        flusher = Thread.ofPlatform().daemon().name("todos-write-behind").start(this::flushLoop);
+    }
+
+    // Waits for the flusher to write what is still queued
+    @PreDestroy
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+            batchFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (flusher != null) {
+            flusher.join();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        memory.bindTo(registry);
+        Gauge.builder("todos.tiered.pending", this, ToDoTieredRepository::pendingCount)
+            .description("To Dos written in memory and waiting to be written to the database")
+            .register(registry);
+        FunctionCounter.builder("todos.tiered.flushed", flushed, AtomicLong::get)
+            .description("To Do writes and deletes flushed to the database")
+            .register(registry);
+        FunctionCounter.builder("todos.tiered.flush.failures", failed, AtomicLong::get)
+            .description("Batch writes the database rejected, each batch is retried until written")
+            .register(registry);
+    }
+
+    @Override
+    public ToDo save(ToDo toDo) {
+        ToDo saved = memory.save(toDo);
+        enqueue(saved.getId());
+        return saved;
+    }
+
+    @Override
+    public Optional<ToDo> findById(UUID id) {
+        return memory.findById(id);
+    }
+
+    @Override
+    public void delete(ToDo toDo) {
+        memory.delete(toDo);
+        enqueue(toDo.getId());
+    }
+
+    @Override
+    public int markDone(UUID id, Date doneDate, Long expectedVersion) {
+        return enqueueIfChanged(id, memory.markDone(id, doneDate, expectedVersion));
+    }
+
+    @Override
+    public int markUndone(UUID id, Long expectedVersion) {
+        return enqueueIfChanged(id, memory.markUndone(id, expectedVersion));
+    }
+
+    @Override
+    public int deleteById(UUID id, Long expectedVersion) {
+        return enqueueIfChanged(id, memory.deleteById(id, expectedVersion));
+    }
+
+    // The memory tier applies the whole batch or, on a version conflict, none of it, so nothing is queued then
+    @Override
+    public List<ToDo> saveBatch(List<ToDo> toDos) {
+        List<ToDo> saved = memory.saveBatch(toDos);
+        saved.forEach(toDo -> enqueue(toDo.getId()));
+        return saved;
+    }
+
+    @Override
+    public List<ToDo> findAllById(Iterable<UUID> ids) {
+        return memory.findAllById(ids);
+    }
+
+    @Override
+    public void deleteBatch(List<ToDo> toDos) {
+        memory.deleteBatch(toDos);
+        toDos.forEach(toDo -> enqueue(toDo.getId()));
+    }
+
+    @Override
+    public Page<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable) {
+        return memory.findByDoneTextAndPriority(done, text, priority, pageable);
+    }
+
+    @Override
+    public Slice<ToDo> findSliceByDoneTextAndPriority(Boolean done, String text, Priority priority, Pageable pageable) {
+        return memory.findSliceByDoneTextAndPriority(done, text, priority, pageable);
+    }
+
+    @Override
+    public long countByDoneTextAndPriority(Boolean done, String text, Priority priority) {
+        return memory.countByDoneTextAndPriority(done, text, priority);
+    }
+
+    @Override
+    public Window<ToDo> findByDoneTextAndPriority(Boolean done, String text, Priority priority, KeysetScrollPosition position, Sort sort, int limit) {
+        return memory.findByDoneTextAndPriority(done, text, priority, position, sort, limit);
+    }
+
+    @Override
+    public void forEachMatching(Boolean done, String text, Priority priority, Consumer<ToDo> action) {
+        memory.forEachMatching(done, text, priority, action);
+    }
+
+    @Override
+    public ToDoStatisticsProjection computeStatistics() {
+        return memory.computeStatistics();
+    }
+
+    @Override
+    public long getDataVersion() {
+        return memory.getDataVersion();
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int enqueueIfChanged(UUID id, int changed) {
+        if (changed > 0) {
+            enqueue(id);
+        }
+        return changed;
+    }
+
+    // Called once the write is visible in memory, an id that is already queued is not queued twice
+    private void enqueue(UUID id) {
+        lock.lock();
+        try {
+            if (!drained) {
+                while (running && pending.size() >= maxPending && !pending.contains(id)) {
+                    batchFull.signal();
+                    notFull.awaitUninterruptibly();
+                }
+                if (pending.add(id)) {
+                    notEmpty.signal();
+                    if (pending.size() >= batchSize) {
+                        batchFull.signal();
+                    }
+                }
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // After shutdown nothing would flush the queue, a failure here reaches the caller. Writes of
+        // one id are serialized, so the last to reach the database has read the latest state
+        Lock writeLock = lateWriteLocks[Math.floorMod(id.hashCode(), LATE_WRITE_STRIPES)];
+        writeLock.lock();
+        try {
+            write(List.of(id));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        List<UUID> batch;
+        while ((batch = nextBatch()) != null) {
+            // A failed batch is retried as it is, not queued again, so the queue never holds more
+            // than max-pending ids: writers keep waiting on the full queue until the database is back
+            while (!flush(batch)) {
+                sleepQuietly(flushIntervalNanos);
+            }
+        }
+    }
+
+    // True once the batch is written, or given up because the repository is shutting down
+    private boolean flush(List<UUID> batch) {
+        try {
+            write(batch);
+            return true;
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            if (!isRunning()) {
+                // The rest of the queue is still written
+                log.error("Writing {} To Dos to the database failed while shutting down, they are lost", batch.size(), e);
+                return true;
+            }
+            log.error("Writing {} To Dos to the database failed, retrying", batch.size(), e);
+            return false;
+        }
+    }
+
+    // Blocks until there is something to write, null once stopped with nothing left (or interrupted)
+    private List<UUID> nextBatch() {
+        lock.lock();
+        try {
+            while (running && pending.isEmpty()) {
+                notEmpty.awaitUninterruptibly();
+            }
+            if (running && pending.size() < batchSize) {
+                // Lingers so that more writes, and more writes of the same To Dos, go in this batch
+                batchFull.awaitNanos(flushIntervalNanos);
+            }
+            if (pending.isEmpty()) {
+                // Under the same lock as the check, so a later write never lands in a queue nobody reads
+                drained = true;
+                return null;
+            }
+            List<UUID> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            for (Iterator<UUID> ids = pending.iterator(); ids.hasNext() && batch.size() < batchSize;) {
+                batch.add(ids.next());
+                ids.remove();
+            }
+            notFull.signalAll();
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = true;
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Read after the ids left the queue: a later write queues its id again, so no state is skipped
+    private void write(List<UUID> batch) {
+        List<ToDo> saved = new ArrayList<>(batch.size());
+        List<UUID> deleted = new ArrayList<>();
+        for (UUID id : batch) {
+            memory.findById(id).ifPresentOrElse(saved::add, () -> deleted.add(id));
+        }
+        database.writeAsIs(saved, deleted);
+        flushed.addAndGet(batch.size());
+    }
+
+    private boolean isRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void sleepQuietly(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
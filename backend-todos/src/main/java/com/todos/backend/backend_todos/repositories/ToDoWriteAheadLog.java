@@ -0,0 +1,330 @@
+package com.todos.backend.backend_todos.repositories;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of byte records over memory-mapped segment files of a fixed size.
+ * A record is its payload length, the CRC32 of the payload and the payload; a zero length ends
+ * the written part of a segment. Positions are byte offsets over the whole log: a segment file is
+ * named after the position of its first byte, and the next segment starts where the previous one
+ * stopped being written.
+ * Appending only copies into the mapping, so a record survives a crash of the process as soon
+ * as append() returns. Surviving a crash of the machine takes a force of the mapped pages, done by
+ * a single flusher thread: every writer waiting in awaitDurable() is released by the same force
+ * (group commit).
+ */
+class ToDoWriteAheadLog implements Closeable {
+    private static final int HEADER = 8;
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private Segment current;
+    private volatile long end;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncRequested = syncLock.newCondition();
+    private final Condition synced = syncLock.newCondition();
+    private long requested;
+    private volatile long durable;
+    private volatile boolean closed;
+    private Thread flusher;
+
+    /**
+     * Opens the log of the directory and hands every valid record from the position on to the
+     * replay consumer, in order. The log ends at the first torn or corrupt record: the rest of its
+     * segment is zeroed and the following segments are deleted, so they can never be replayed
+     * after records appended later.
+     */
+    ToDoWriteAheadLog(Path directory, int segmentSize, long from, Consumer<ByteBuffer> replay) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(ToDoWriteAheadLog::isSegment).forEach(file -> {
+                long start = Long.parseLong(file.getFileName().toString().substring(PREFIX.length(), file.getFileName().toString().length() - SUFFIX.length()));
+                segments.put(start, new Segment(start, file));
+            });
+        }
+        for (Segment segment : segments.values()) {
+            segment.map(segmentSize);
+        }
+
+        // Segments entirely before the position are covered by the snapshot
+        deleteBefore(from);
+        if (!segments.isEmpty() && segments.firstKey() > from) {
+            throw new IllegalStateException("The log starts at " + segments.firstKey() + ", after the snapshot position " + from);
+        }
+        long position = from;
+        boolean valid = true;
+        for (Segment segment : segments.values()) {
+            if (!valid || segment.start > position) {
+                // A hole before this segment, everything from here on comes after the end of the log
+                segments.remove(segment.start);
+                segment.close();
+                Files.deleteIfExists(segment.file);
+                continue;
+            }
+            int offset = (int) (position - segment.start);
+            segment.position = replaySegment(segment, offset, replay);
+            position = segment.start + segment.position;
+            if (segment.position + 4 <= segment.capacity() && segment.buffer.getInt(segment.position) != 0) {
+                valid = false;
+            }
+            current = segment;
+        }
+        if (current != null) {
+            // Whatever follows the last valid record must never be read as a record
+            byte[] zeros = new byte[64 * 1024];
+            for (int i = current.position; i < current.capacity(); i += zeros.length) {
+                current.buffer.put(i, zeros, 0, Math.min(zeros.length, current.capacity() - i));
+            }
+        } else {
+            current = newSegment(from);
+        }
+        end = current.start + current.position;
+        durable = end;
+        requested = end;
+    }
+
+    // Forces the mapped pages on demand, and at least every interval when it is not null
+    void startFlusher(Duration interval) {
+        flusher = Thread.ofPlatform().daemon().name("todos-wal-flusher").start(() -> {
+            while (!closed) {
+                syncLock.lock();
+                try {
+                    if (requested <= durable && !closed) {
+                        if (interval == null) {
+                            syncRequested.await();
+                        } else {
+                            syncRequested.await(interval.toNanos(), TimeUnit.NANOSECONDS);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    syncLock.unlock();
+                }
+                sync();
+            }
+        });
+    }
+
+    // Returns the position right after the record
+    long append(byte[] payload) {
+        int size = HEADER + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a log segment");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The log is closed");
+            }
+            if (current.position + size > current.capacity()) {
+                current = newSegment(end);
+            }
+            int position = current.position;
+            current.buffer.put(position + HEADER, payload);
+            current.buffer.putInt(position + 4, (int) crc.getValue());
+            // The length goes last, a record is never seen before its payload
+            current.buffer.putInt(position, payload.length);
+            current.position = position + size;
+            end = current.start + current.position;
+            return end;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Blocks until every record up to the position is on disk
+    void awaitDurable(long position) {
+        if (durable >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (position > requested) {
+                requested = position;
+                syncRequested.signal();
+            }
+            while (durable < position) {
+                if (closed) {
+                    throw new IllegalStateException("The log is closed");
+                }
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Position after the last appended record
+    long end() {
+        return end;
+    }
+
+    // Deletes the segments holding only records before the position
+    void deleteBefore(long position) throws IOException {
+        Long containing = segments.floorKey(position);
+        if (containing == null) {
+            return;
+        }
+        for (Map.Entry<Long, Segment> entry : segments.headMap(containing, false).entrySet()) {
+            segments.remove(entry.getKey());
+            entry.getValue().close();
+            Files.deleteIfExists(entry.getValue().file);
+        }
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            sync();
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        syncLock.lock();
+        try {
+            syncRequested.signalAll();
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    // Forces the pages written since the last sync, segment by segment, in log order
+    private void sync() {
+        long target = end;
+        long from = durable;
+        if (target <= from) {
+            return;
+        }
+        Long first = segments.floorKey(from);
+        for (Segment segment : segments.tailMap(first == null ? from : first, true).values()) {
+            if (segment.start >= target) {
+                break;
+            }
+            int start = (int) Math.max(0, from - segment.start);
+            int length = (int) Math.min(segment.capacity(), target - segment.start) - start;
+            if (length > 0) {
+                segment.buffer.force(start, length);
+            }
+        }
+        syncLock.lock();
+        try {
+            durable = Math.max(durable, target);
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private Segment newSegment(long start) throws IOException {
+        Segment segment = new Segment(start, directory.resolve(String.format("%s%020d%s", PREFIX, start, SUFFIX)));
+        segment.map(segmentSize);
+        segments.put(start, segment);
+        return segment;
+    }
+
+    // Offset right after the last valid record of the segment
+    private static int replaySegment(Segment segment, int offset, Consumer<ByteBuffer> replay) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = offset;
+        CRC32 crc = new CRC32();
+        while (position + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER + length > buffer.capacity()) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(position + HEADER, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            replay.accept(payload);
+            position += HEADER + length;
+        }
+        return position;
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    private static class Segment {
+        private final long start;
+        private final Path file;
+        private FileChannel channel;
+        private MappedByteBuffer buffer;
+        // Offset of the next record, only changed under the append lock
+        private int position;
+
+        Segment(long start, Path file) {
+            this.start = start;
+            this.file = file;
+        }
+
+        // Mapping past the end of the file grows it, unwritten bytes read as zero.
+        // A segment written with a larger segment size keeps its own size.
+        void map(int size) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The mapping stays valid until it is garbage collected
+            }
+        }
+    }
+}
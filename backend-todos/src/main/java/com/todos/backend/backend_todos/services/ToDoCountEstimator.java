@@ -0,0 +1,55 @@
+package com.todos.backend.backend_todos.services;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.repositories.ToDoRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Approximate number of To Dos per filter shape (done, text, priority), for GET /todos?total=estimate.
+ * The first request of a shape counts synchronously. After refresh-interval the next request
+ * still gets the cached count while it is recounted in the background, so writes show up in the
+ * totals with a delay of about one interval and a request never waits for a count again.
+ */
+@Component
+public class ToDoCountEstimator implements MeterBinder {
+    private final LoadingCache<Shape, Long> counts;
+
+    @Autowired
+    private ToDoRepository repository;
+
+    public ToDoCountEstimator(
+        @Value("${todos.count.max-size:1000}") long maxSize,
+        @Value("${todos.count.refresh-interval:10s}") Duration refreshInterval
+    ) {
+        this.counts = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .refreshAfterWrite(refreshInterval)
+            .recordStats()
+            .build(shape -> repository.countByDoneTextAndPriority(shape.done(), shape.text(), shape.priority()));
+    }
+
+    // Text filters are case-insensitive, so is the shape
+    public long estimate(Boolean done, String text, Priority priority) {
+        return counts.get(new Shape(done, text == null ? null : text.toLowerCase(), priority));
+    }
+
+    // Hits, misses, evictions and size as cache.* meters with cache=todos.count
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, counts, "todos.count");
+    }
+
+    private record Shape(Boolean done, String text, Priority priority) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.todos.backend.backend_todos.services;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.todos.backend.backend_todos.dto.ToDoTotal;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded cache of GET /todos pages, evicted by size and age.
+ * Every key carries the data version of the repository, read before the page is loaded. The
+ * repository bumps its version once a write is visible to readers, so a page cached before a write
+ * can never be found again after it: readers build their keys with the new version, and the old
+ * entries just age out. ETags are built from the same version, so a cached page is never older
+ * than the version it is served under.
+ */
+@Component
+public class ToDoQueryCache implements MeterBinder {
+    private final Cache<Key, Slice<ToDo>> pages;
+
+    public ToDoQueryCache(
+        @Value("${todos.cache.max-size:1000}") long maxSize,
+        @Value("${todos.cache.ttl:30s}") Duration ttl
+    ) {
+        this.pages = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+    }
+
+    // The data version must be read before the repository, so a concurrent write makes the entry unreachable
+    public Slice<ToDo> get(long dataVersion, int page, int size, Boolean done, String text, Priority priority, String sort, ToDoTotal total, Supplier<Slice<ToDo>> loader) {
+        Key key = new Key(dataVersion, page, size, done, text, priority, sort, total);
+        return pages.get(key, ignored -> loader.get());
+    }
+
+    // Hits, misses, evictions and size as cache.* meters with cache=todos.query
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, pages, "todos.query");
+    }
+
+    private record Key(long dataVersion, int page, int size, Boolean done, String text, Priority priority, String sort, ToDoTotal total) {
+    }
+}
@@ -1,69 +1,194 @@
 package com.todos.backend.backend_todos.services;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import com.todos.backend.backend_todos.models.Priority;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.todos.backend.backend_todos.dto.NewToDo;
+import com.todos.backend.backend_todos.dto.ToDoBatchResult;
+import com.todos.backend.backend_todos.dto.ToDoCursorPage;
+import com.todos.backend.backend_todos.dto.ToDoFileFormat;
+import com.todos.backend.backend_todos.dto.ToDoImportResult;
 import com.todos.backend.backend_todos.dto.ToDoStatistics;
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
+import com.todos.backend.backend_todos.dto.ToDoTotal;
+import com.todos.backend.backend_todos.exceptions.ToDoConflictException;
 import com.todos.backend.backend_todos.exceptions.ToDoNotFoundException;
 import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoKeyset;
 import com.todos.backend.backend_todos.repositories.ToDoRepository;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
 @Service
 public class ToDoService {
 
     @Autowired
     private ToDoRepository repository;
 
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ToDoQueryCache queryCache;
+
+    @Autowired
+    private ToDoCountEstimator countEstimator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
 
     private static final Set<String> VALID_FIELDS = Set.of("priority", "dueDate");
     private static final Set<String> VALID_ORDERS = Set.of("asc", "desc");
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int IMPORT_BATCH_SIZE = 500;
 
     public ToDoService() {
     }
 
     public ToDo createToDo(NewToDo toDo) {
-        ToDo newToDo = new ToDo();
-        if (toDo.getDueDate() != null) {
-            LocalDate today = LocalDate.now(); // Current date without time
-            LocalDate dueDate = toDo.getDueDate().toInstant()
-                                    .atZone(ZoneId.systemDefault())
-                                    .toLocalDate();
-            if (dueDate.isBefore(today)) {
-                throw new IllegalArgumentException("Due date cannot be in the past.");
+        return repository.save(newToDoFrom(toDo));
+    }
+
+    // Items are validated one by one and reported in the result, the valid ones are saved together
+    @Transactional
+    public ToDoBatchResult createToDos(List<NewToDo> toDos) {
+        checkBatchSize(toDos);
+        ToDoBatchResult result = new ToDoBatchResult();
+        List<ToDo> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        ToDoBatchResult.Item[] items = new ToDoBatchResult.Item[toDos.size()];
+        for (int i = 0; i < toDos.size(); i++) {
+            NewToDo toDo = toDos.get(i);
+            String error = toDo == null ? "To Do is required." : validationError(toDo);
+            if (error == null) {
+                try {
+                    valid.add(newToDoFrom(toDo));
+                    validIndexes.add(i);
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
             }
+            items[i] = new ToDoBatchResult.Item(i, null, ToDoBatchResult.Status.INVALID, error);
         }
-        newToDo.setCreationDate(new Date());
-        newToDo.setDone(false);
-        newToDo.setDueDate(toDo.getDueDate());
-        
-        newToDo.setText(toDo.getText());
-        newToDo.setPriority(toDo.getPriority());
-        return repository.save(newToDo);
+        List<ToDo> saved = repository.saveBatch(valid);
+        for (int i = 0; i < saved.size(); i++) {
+            int index = validIndexes.get(i);
+            items[index] = new ToDoBatchResult.Item(index, saved.get(i).getId(), ToDoBatchResult.Status.CREATED, null);
+        }
+        for (ToDoBatchResult.Item item : items) {
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the file one record at a time and saves the valid ones in transactions of
+     * IMPORT_BATCH_SIZE rows, so memory use does not depend on the file size.
+     * Records get the same checks as POST /todos. A batch that was saved stays saved
+     * if a later line turns out to be malformed; the import stops at that line.
+     */
+    public ToDoImportResult importToDos(ToDoFileFormat format, InputStream in) throws IOException {
+        ObjectReader reader = format == ToDoFileFormat.CSV
+            ? new CsvMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readerFor(NewToDo.class).with(CsvSchema.emptySchema().withHeader())
+            : objectMapper.readerFor(NewToDo.class);
+        ToDoImportResult result = new ToDoImportResult();
+        List<ToDo> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        // CSV records are numbered after the header line, NDJSON records by the line they start on
+        long record = format == ToDoFileFormat.CSV ? 1 : 0;
+        try (MappingIterator<NewToDo> records = reader.readValues(in)) {
+            while (true) {
+                long line = format == ToDoFileFormat.CSV ? ++record : records.getCurrentLocation().getLineNr();
+                try {
+                    if (!records.hasNextValue()) {
+                        break;
+                    }
+                    if (format == ToDoFileFormat.NDJSON) {
+                        line = records.getParser().currentTokenLocation().getLineNr();
+                    }
+                    NewToDo toDo = records.nextValue();
+                    String error = validationError(toDo);
+                    if (error != null) {
+                        result.reject(line, error);
+                        continue;
+                    }
+                    batch.add(newToDoFrom(toDo));
+                } catch (IllegalArgumentException | JsonMappingException e) {
+                    // Valid syntax but not a To Do, the parser resumes at the next record
+                    result.reject(line, e.getMessage());
+                    continue;
+                } catch (JsonProcessingException e) {
+                    result.reject(line, "Malformed record, import stopped: " + e.getOriginalMessage());
+                    break;
+                }
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    saveImportBatch(batch, result);
+                }
+            }
+        }
+        saveImportBatch(batch, result);
+        return result;
     }
 
     public ToDo updateToDo(UUID id, NewToDo updatedToDo) {
-        Optional<ToDo> currentToDo = repository.findById(id);
-        // ToDo does not exist
-        if(currentToDo.isEmpty()) {
-            throw new ToDoNotFoundException("To Do not found with id " + id);
-        } 
+        return updateToDo(id, updatedToDo, null);
+    }
+
+    /**
+     * expectedVersion is the version the client read (If-Match), null to skip that check.
+     * An update is never retried: the client chose the new values from what it read, so a
+     * concurrent write is reported as a ToDoConflictException for it to read again.
+     */
+    public ToDo updateToDo(UUID id, NewToDo updatedToDo, Long expectedVersion) {
+        ToDo toDo = findForWrite(id, expectedVersion);
         // Update the currentToDo
-        ToDo toDo = currentToDo.get();
         if (updatedToDo.getDueDate() != null) {
             LocalDate creationDate = toDo.getCreationDate().toInstant()
                                             .atZone(ZoneId.systemDefault())
@@ -78,50 +203,64 @@ public class ToDoService {
         toDo.setDueDate(updatedToDo.getDueDate());
         toDo.setText(updatedToDo.getText());
         toDo.setPriority(updatedToDo.getPriority());
-        return repository.save(toDo);
+        try {
+            return repository.save(toDo);
+        } catch (OptimisticLockingFailureException e) {
+            throw conflict(id);
+        }
     }
 
     public ToDo completeToDo(UUID id) {
-        Optional<ToDo> currentToDo = repository.findById(id);
-        // ToDo does not exist
-        if(currentToDo.isEmpty()) {
-            throw new ToDoNotFoundException("To Do not found with id " + id);
-        } 
-        // Update the currentToDo
-        ToDo toDo = currentToDo.get();
-        toDo.setDone(true);
-        if (toDo.getDoneDate() == null) {
-            toDo.setDoneDate(new Date());
-        }
-        return repository.save(toDo);
+        return completeToDo(id, null);
+    }
+
+    public ToDo completeToDo(UUID id, Long expectedVersion) {
+        int changed = repository.markDone(id, new Date(), expectedVersion);
+        return changedToDo(id, expectedVersion, changed);
     }
 
     public ToDo uncompleteToDo(UUID id) {
-        Optional<ToDo> currentToDo = repository.findById(id);
-        // ToDo does not exist
-        if(currentToDo.isEmpty()) {
-            throw new ToDoNotFoundException("To Do not found with id " + id);
-        } 
-        // Update the currentToDo
-        ToDo toDo = currentToDo.get();
+        return uncompleteToDo(id, null);
+    }
+
+    public ToDo uncompleteToDo(UUID id, Long expectedVersion) {
         // TODO: I think this will require further validation.
-        toDo.setDone(false);
-        if (toDo.getDoneDate() != null) {
-            toDo.setDoneDate(null);
+        int changed = repository.markUndone(id, expectedVersion);
+        return changedToDo(id, expectedVersion, changed);
+    }
+
+    @Transactional
+    public ToDoBatchResult completeToDos(List<UUID> ids) {
+        checkBatchSize(ids);
+        Map<UUID, ToDo> found = findAllById(ids);
+        List<ToDo> completed = new ArrayList<>();
+        for (ToDo toDo : found.values()) {
+            toDo.setDone(true);
+            if (toDo.getDoneDate() == null) {
+                toDo.setDoneDate(new Date());
+            }
+            completed.add(toDo);
         }
-        return repository.save(toDo);
+        repository.saveBatch(completed);
+        return resultFor(ids, found, ToDoBatchResult.Status.DONE);
+    }
+
+    @Transactional
+    public ToDoBatchResult deleteToDos(List<UUID> ids) {
+        checkBatchSize(ids);
+        Map<UUID, ToDo> found = findAllById(ids);
+        repository.deleteBatch(new ArrayList<>(found.values()));
+        return resultFor(ids, found, ToDoBatchResult.Status.DELETED);
     }
 
     public void deleteToDo(UUID id) {
-        Optional<ToDo> currentToDo = repository.findById(id);
-        // ToDo does not exist
-        if(currentToDo.isEmpty()) {
-            throw new ToDoNotFoundException("To Do not found with id " + id);
-        } 
-        // Update the currentToDo
-        ToDo toDo = currentToDo.get();
-    
-        repository.delete(toDo);
+        deleteToDo(id, null);
+    }
+
+    public void deleteToDo(UUID id, Long expectedVersion) {
+        if (repository.deleteById(id, expectedVersion) == 0) {
+            throw unchanged(id, expectedVersion);
+        }
     }
 
     public Page<ToDo> getAllToDosFilterAndSort(
@@ -132,88 +271,232 @@ public class ToDoService {
         Priority priorityFilter,
         String sortList 
     ) {
+        return (Page<ToDo>) getAllToDosFilterAndSort(page, size, doneFilter, textFilter, priorityFilter, sortList, ToDoTotal.EXACT);
+    }
+
+    /**
+     * EXACT returns a Page counted by the repository, NONE a Slice that only reads one row past
+     * the page, and ESTIMATE that slice as a Page whose total comes from ToDoCountEstimator.
+     * The estimate never contradicts the rows read: it is the exact total when there is no next
+     * page, and at least one row past the page otherwise.
+     */
+    public Slice<ToDo> getAllToDosFilterAndSort(
+        Integer page,
+        Integer size,
+        Boolean doneFilter,
+        String textFilter,
+        Priority priorityFilter,
+        String sortList,
+        ToDoTotal total
+    ) {
+        // Repeated queries are served from the cache until the next write changes the data version
+        return queryCache.get(repository.getDataVersion(), page, size, doneFilter, textFilter, priorityFilter, sortList, total, () -> {
+            Sort sort = parseSortParameter(sortList);
+            Pageable pageable = PageRequest.of(page, size, sort);
+            if (total == ToDoTotal.EXACT) {
+                return repository.findByDoneTextAndPriority(doneFilter, textFilter, priorityFilter, pageable);
+            }
+            Slice<ToDo> slice = repository.findSliceByDoneTextAndPriority(doneFilter, textFilter, priorityFilter, pageable);
+            if (total == ToDoTotal.NONE) {
+                return slice;
+            }
+            long read = pageable.getOffset() + slice.getNumberOfElements();
+            long estimate = slice.hasNext()
+                ? Math.max(read + 1, countEstimator.estimate(doneFilter, textFilter, priorityFilter))
+                : read;
+            return new PageImpl<>(slice.getContent(), pageable, estimate);
+        });
+    }
+
+    // Cursor mode: an empty cursor starts at the first row, the cost of a window does not depend on its depth
+    public ToDoCursorPage getToDosAfterCursor(
+        Integer size,
+        Boolean doneFilter,
+        String textFilter,
+        Priority priorityFilter,
+        String sortList,
+        String cursor
+    ) {
+        if (size == null || size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than zero.");
+        }
         Sort sort = parseSortParameter(sortList);
-        Pageable pageable = PageRequest.of(page, size, sort);
-        return repository.findByDoneTextAndPriority(doneFilter, textFilter, priorityFilter, pageable);
+        KeysetScrollPosition position = cursor == null || cursor.isBlank()
+            ? ScrollPosition.keyset()
+            : ToDoKeyset.decode(cursor);
+        Window<ToDo> window = repository.findByDoneTextAndPriority(doneFilter, textFilter, priorityFilter, position, sort, size);
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            nextCursor = ToDoKeyset.encode((KeysetScrollPosition) window.positionAt(window.size() - 1));
+        }
+        return new ToDoCursorPage(window.getContent(), nextCursor);
     }
 
-    public ToDoStatistics geToDoStatistics() {
-        long startTime = System.currentTimeMillis();
-        ToDoStatistics stats = new ToDoStatistics();
-        Long totalDoneSeconds = 0L;
-        Long totalLowDoneSeconds = 0L;
-        Long totalMediumDoneSeconds = 0L;
-        Long totalHighDoneSeconds = 0L;
-        int currentPage = 0;
-
-        Pageable pageable = PageRequest.of(currentPage, 100);
-        Page<ToDo> page;
-
-        boolean hasNext = true;
-        while (hasNext) {
-            page = repository.findByDoneTextAndPriority(true, null, null, pageable);
-            for (ToDo toDo : page) {
-                if (toDo.getDoneDate() == null || toDo.getCreationDate() == null) {
-                    continue;
-                }
-                
-                stats.incrementTotalDone();
-                Long elapsedTimeSeconds = (toDo.getDoneDate().getTime() - toDo.getCreationDate().getTime()) / 1000;
-                totalDoneSeconds += elapsedTimeSeconds;
-                switch (toDo.getPriority()) {
-                    case Priority.LOW:
-                        stats.incrementLowDone();
-                        totalLowDoneSeconds += elapsedTimeSeconds;
-                        break;
-                    case Priority.MEDIUM:
-                        stats.incrementMediumDone();
-                        totalMediumDoneSeconds += elapsedTimeSeconds;
-                        break;
-                    default:
-                        stats.incrementHighDone();
-                        totalHighDoneSeconds += elapsedTimeSeconds;
-                        break;
+    // Writes every matching To Do to the stream as soon as it is read, nothing is buffered but the current row
+    public void exportToDos(Boolean doneFilter, String textFilter, Priority priorityFilter, ToDoFileFormat format, OutputStream out) throws IOException {
+        ObjectWriter writer = format == ToDoFileFormat.CSV
+            // Properties outside CSV_SCHEMA, such as version, are left out so files keep their columns
+            ? new CsvMapper().setTimeZone(objectMapper.getSerializationConfig().getTimeZone()).writer(ToDoFileFormat.CSV_SCHEMA)
+                .with(JsonGenerator.Feature.IGNORE_UNKNOWN)
+            : objectMapper.writer().withRootValueSeparator("\n");
+        try (SequenceWriter rows = writer.writeValues(out)) {
+            AtomicLong written = new AtomicLong();
+            repository.forEachMatching(doneFilter, textFilter, priorityFilter, toDo -> {
+                try {
+                    rows.write(toDo);
+                    written.incrementAndGet();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            });
+            // The separator only goes between rows, end the last line too
+            if (format == ToDoFileFormat.NDJSON && written.get() > 0) {
+                rows.flush();
+                out.write('\n');
             }
-            hasNext = page.hasNext();
-            currentPage++;
-            pageable = PageRequest.of(currentPage, 100);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+    }
 
-        Long avgTime = 0L;
+    // Read before the data it describes, so a concurrent write can only make it older, never newer.
+    // The query cache is keyed on the same version, so its pages are never older than it either.
+    public long getDataVersion() {
+        return repository.getDataVersion();
+    }
 
-        if (stats.getTotalDone() > 0) {
-            avgTime = totalDoneSeconds / stats.getTotalDone();
-            stats.setAverageDoneTime(formatAverageTime(avgTime));
+    public ToDoStatistics geToDoStatistics() {
+        ToDoStatisticsProjection totals = repository.computeStatistics();
+        ToDoStatistics stats = new ToDoStatistics();
+        stats.setTotalDone((int) totals.getTotalDone());
+        stats.setTotalLowDone((int) totals.getTotalLowDone());
+        stats.setTotalMediumDone((int) totals.getTotalMediumDone());
+        stats.setTotalHighDone((int) totals.getTotalHighDone());
+
+        if (totals.getTotalDone() > 0) {
+            stats.setAverageDoneTime(formatAverageTime(totals.getTotalDoneSeconds() / totals.getTotalDone()));
         }
-        if (stats.getTotalLowDone() > 0) {
-            avgTime = totalLowDoneSeconds / stats.getTotalLowDone();
-            stats.setAverageLowDoneTime(formatAverageTime(avgTime));
+        if (totals.getTotalLowDone() > 0) {
+            stats.setAverageLowDoneTime(formatAverageTime(totals.getTotalLowDoneSeconds() / totals.getTotalLowDone()));
         }
-        if (stats.getTotalHighDone() > 0) {
-            avgTime = totalHighDoneSeconds / stats.getTotalHighDone();
-            stats.setAverageHighDoneTime(formatAverageTime(avgTime));
+        if (totals.getTotalHighDone() > 0) {
+            stats.setAverageHighDoneTime(formatAverageTime(totals.getTotalHighDoneSeconds() / totals.getTotalHighDone()));
         }
-        if (stats.getTotalMediumDone() > 0) {
-            avgTime = totalMediumDoneSeconds / stats.getTotalMediumDone();
-            stats.setAverageMediumDoneTime(formatAverageTime(avgTime));
+        if (totals.getTotalMediumDone() > 0) {
+            stats.setAverageMediumDoneTime(formatAverageTime(totals.getTotalMediumDoneSeconds() / totals.getTotalMediumDone()));
         }
 
-        // End time
-        long endTime = System.currentTimeMillis();
+        return stats;
+    }
 
-        // Calculate elapsed time in milliseconds
-        long elapsedTime = endTime - startTime;
+    private ToDo findForWrite(UUID id, Long expectedVersion) {
+        // ToDo does not exist
+        ToDo toDo = repository.findById(id).orElseThrow(() -> new ToDoNotFoundException("To Do not found with id " + id));
+        if (expectedVersion != null && !expectedVersion.equals(toDo.getVersion())) {
+            throw new ToDoConflictException("To Do " + id + " is at version " + toDo.getVersion() + ", not " + expectedVersion);
+        }
+        return toDo;
+    }
+
+    /**
+     * Complete and uncomplete are written by the repository in one step, conditioned on the
+     * expected version, so there is no read before the write and no concurrent write to retry.
+     * The To Do is read afterwards for the response.
+     */
+    private ToDo changedToDo(UUID id, Long expectedVersion, int changed) {
+        if (changed == 0) {
+            throw unchanged(id, expectedVersion);
+        }
+        return repository.findById(id).orElseThrow(() -> new ToDoNotFoundException("To Do not found with id " + id));
+    }
 
-        // Print the elapsed time
-        System.out.println("Elapsed time: " + elapsedTime + " milliseconds");
+    // Nothing was written, only this failure path reads the To Do, to tell a missing one from one at another version
+    private RuntimeException unchanged(UUID id, Long expectedVersion) {
+        findForWrite(id, expectedVersion);
+        return conflict(id);
+    }
 
-        return stats;
+    private static ToDoConflictException conflict(UUID id) {
+        return new ToDoConflictException("To Do " + id + " was changed by another request, read it again");
+    }
+
+    private void saveImportBatch(List<ToDo> batch, ToDoImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> repository.saveBatch(batch));
+        result.accept(batch.size());
+        batch.clear();
+    }
+
+    // Builds the To Do stored by createToDo, rejecting due dates in the past
+    private ToDo newToDoFrom(NewToDo toDo) {
+        ToDo newToDo = new ToDo();
+        if (toDo.getDueDate() != null) {
+            LocalDate today = LocalDate.now(); // Current date without time
+            LocalDate dueDate = toDo.getDueDate().toInstant()
+                                    .atZone(ZoneId.systemDefault())
+                                    .toLocalDate();
+            if (dueDate.isBefore(today)) {
+                throw new IllegalArgumentException("Due date cannot be in the past.");
+            }
+        }
+        newToDo.setCreationDate(new Date());
+        newToDo.setDone(false);
+        newToDo.setDueDate(toDo.getDueDate());
+        
+        newToDo.setText(toDo.getText());
+        newToDo.setPriority(toDo.getPriority());
+        return newToDo;
+    }
+
+    // Same bean validation as @Valid on POST /todos, as a single message per item
+    private String validationError(NewToDo toDo) {
+        Set<ConstraintViolation<NewToDo>> violations = validator.validate(toDo);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+
+    private void checkBatchSize(List<?> batch) {
+        if (batch == null || batch.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty.");
+        }
+        if (batch.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch cannot have more than " + MAX_BATCH_SIZE + " items.");
+        }
+    }
+
+    // One query for the whole batch instead of a findById per item
+    private Map<UUID, ToDo> findAllById(List<UUID> ids) {
+        Map<UUID, ToDo> found = new LinkedHashMap<>();
+        Set<UUID> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        for (ToDo toDo : repository.findAllById(distinctIds)) {
+            found.put(toDo.getId(), toDo);
+        }
+        return found;
+    }
+
+    private ToDoBatchResult resultFor(List<UUID> ids, Map<UUID, ToDo> found, ToDoBatchResult.Status status) {
+        ToDoBatchResult result = new ToDoBatchResult();
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            if (found.containsKey(id)) {
+                result.add(new ToDoBatchResult.Item(i, id, status, null));
+            } else {
+                result.add(new ToDoBatchResult.Item(i, id, ToDoBatchResult.Status.NOT_FOUND, "To Do not found with id " + id));
+            }
+        }
+        return result;
     }
 
     private Sort parseSortParameter(String sortList) {
         if (sortList == null || sortList.isBlank()) {
-            System.out.println("Lista esta vacia");
             return Sort.unsorted();
         }
 
@@ -246,14 +529,12 @@ public class ToDoService {
     }
 
     private String formatAverageTime(Long averageTimeSeconds) {
-        System.out.println("Time in seconds: " + averageTimeSeconds);
         long minutes = averageTimeSeconds / 60;
         // long hours = 0;
         // if (minutes >= 60) {
         //     hours = minutes / 60;
         //     minutes = minutes % 60;
         // }
-        //System.out.println("Time in hours: " + hours);
         long seconds = averageTimeSeconds % 60;
         return String.format("%02d:%02d", minutes, seconds);
     }
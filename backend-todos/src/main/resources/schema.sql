@@ -7,5 +7,6 @@ create table to_do (
     due_date timestamp(6), 
     priority tinyint not null check (priority between 0 and 2), 
     text varchar(120) not null, 
+    version bigint default 0 not null, 
     primary key (id)
 );
\ No newline at end of file
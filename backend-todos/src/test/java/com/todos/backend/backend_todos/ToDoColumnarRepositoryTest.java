@@ -0,0 +1,239 @@
+package com.todos.backend.backend_todos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoColumnarRepository;
+import com.todos.backend.backend_todos.repositories.ToDoInMemoryRepository;
+import com.todos.backend.backend_todos.repositories.ToDoRepository;
+
+// The columnar store must answer every query exactly like the object store it can replace
+public class ToDoColumnarRepositoryTest {
+
+    private static final String[] TEXTS = { "Write the Report", "pay invoice", "Réunion d'équipe", "REVIEW release notes", "Straße fegen" };
+
+    private ToDoColumnarRepository columnar;
+    private ToDoInMemoryRepository reference;
+
+    @BeforeEach
+    public void setup() {
+        columnar = new ToDoColumnarRepository();
+        reference = new ToDoInMemoryRepository();
+    }
+
+    @Test
+    public void findByDoneTextAndPriority_PagesLikeTheInMemoryRepository_AfterUpdatesAndDeletes() {
+        // Arrange
+        List<ToDo> saved = saveRandomRows(2_000);
+        mutateAndDelete(saved);
+
+        // Act and Assert
+        for (Sort sort : sorts()) {
+            for (Boolean done : new Boolean[] { null, true, false }) {
+                for (String text : new String[] { null, "report", "É", "se", "nothing like this" }) {
+                    for (Priority priority : new Priority[] { null, Priority.HIGH }) {
+                        for (int page : new int[] { 0, 3 }) {
+                            PageRequest pageable = PageRequest.of(page, 25, sort);
+                            Page<ToDo> expected = reference.findByDoneTextAndPriority(done, text, priority, pageable);
+                            Page<ToDo> actual = columnar.findByDoneTextAndPriority(done, text, priority, pageable);
+                            assertEquals(expected.getTotalElements(), actual.getTotalElements());
+                            assertEquals(ids(expected.getContent()), ids(actual.getContent()), "Page of " + sort + " " + done + " " + text + " " + priority);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findByDoneTextAndPriority_WalksTheSameWindowsAsTheInMemoryRepository() {
+        // Arrange
+        saveRandomRows(500);
+
+        for (Sort sort : sorts()) {
+            // Act
+            List<UUID> expected = walk(reference, sort);
+            List<UUID> actual = walk(columnar, sort);
+
+            // Assert
+            assertEquals(500, actual.size());
+            assertEquals(expected, actual, "Windows sorted by " + sort);
+        }
+    }
+
+    @Test
+    public void statisticsAndExport_MatchTheInMemoryRepository() {
+        // Arrange
+        List<ToDo> saved = saveRandomRows(1_000);
+        mutateAndDelete(saved);
+
+        // Act
+        ToDoStatisticsProjection expected = reference.computeStatistics();
+        ToDoStatisticsProjection actual = columnar.computeStatistics();
+        List<ToDo> expectedExport = new ArrayList<>();
+        List<ToDo> actualExport = new ArrayList<>();
+        reference.forEachMatching(false, "e", null, expectedExport::add);
+        columnar.forEachMatching(false, "e", null, actualExport::add);
+
+        // Assert
+        assertEquals(expected.getTotalDone(), actual.getTotalDone());
+        assertEquals(expected.getTotalHighDone(), actual.getTotalHighDone());
+        assertEquals(expected.getTotalDoneSeconds(), actual.getTotalDoneSeconds());
+        assertEquals(new HashSet<>(ids(expectedExport)), new HashSet<>(ids(actualExport)), "Exports should have the same rows");
+        assertEquals(expectedExport.size(), actualExport.size(), "No row should be exported twice");
+    }
+
+    @Test
+    public void forEachMatching_SkipsSlotsReusedByAnotherToDo_WhileExporting() {
+        // Arrange: more rows than one export chunk, the last one is in the second chunk
+        List<ToDo> saved = new ArrayList<>();
+        for (int i = 0; i < 1_500; i++) {
+            ToDo toDo = newToDo("Export me " + i, Priority.LOW, new Date(1_700_000_000_000L + i * 1_000L));
+            columnar.save(toDo);
+            saved.add(toDo);
+        }
+        ToDo deleted = saved.get(saved.size() - 1);
+        ToDo reusing = newToDo("Someone else's row", Priority.HIGH, new Date(1_600_000_000_000L));
+        List<ToDo> exported = new ArrayList<>();
+
+        // Act: between the chunks the last row is deleted and its slot taken by a To Do that does not match
+        columnar.forEachMatching(false, "export", null, toDo -> {
+            if (exported.isEmpty()) {
+                columnar.delete(deleted);
+                columnar.save(reusing);
+            }
+            exported.add(toDo);
+        });
+
+        // Assert
+        assertEquals(ids(saved.subList(0, saved.size() - 1)), ids(exported));
+    }
+
+    @Test
+    public void findById_RoundTripsEveryColumn_IncludingNulls() {
+        // Arrange
+        ToDo toDo = newToDo("Réunion à 9h", Priority.LOW, new Date(1_700_000_000_000L));
+        toDo.setDueDate(null);
+        toDo.setDone(true);
+        toDo.setDoneDate(new Date(1_700_000_360_000L));
+        columnar.save(toDo);
+
+        // Act
+        ToDo loaded = columnar.findById(toDo.getId()).orElseThrow();
+        columnar.delete(loaded);
+
+        // Assert
+        assertEquals("Réunion à 9h", loaded.getText());
+        assertEquals(Priority.LOW, loaded.getPriority());
+        assertEquals(toDo.getCreationDate(), loaded.getCreationDate());
+        assertNull(loaded.getDueDate());
+        assertEquals(toDo.getDoneDate(), loaded.getDoneDate());
+        assertEquals(true, loaded.getDone());
+        assertFalse(columnar.findById(toDo.getId()).isPresent());
+    }
+
+    private List<ToDo> saveRandomRows(int rows) {
+        Random random = new Random(7);
+        List<ToDo> saved = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            // Few distinct dates, so the tiebreakers decide most comparisons
+            ToDo toDo = newToDo(TEXTS[random.nextInt(TEXTS.length)] + " " + i, Priority.values()[random.nextInt(3)],
+                new Date(1_700_000_000_000L + random.nextInt(20) * 60_000L));
+            toDo.setDueDate(random.nextInt(4) == 0 ? null : new Date(1_710_000_000_000L + random.nextInt(10) * 86_400_000L));
+            if (random.nextInt(3) == 0) {
+                toDo.setDone(true);
+                toDo.setDoneDate(new Date(toDo.getCreationDate().getTime() + random.nextInt(100) * 60_000L));
+            }
+            saveBoth(toDo);
+            saved.add(toDo);
+        }
+        return saved;
+    }
+
+    // Re-saves a third of the rows with other values, deletes a fifth of them and flips the done state of others in place
+    private void mutateAndDelete(List<ToDo> saved) {
+        Random random = new Random(11);
+        for (ToDo toDo : saved) {
+            int roll = random.nextInt(15);
+            if (roll < 5) {
+                ToDo changed = new ToDo(toDo);
+                changed.setText(TEXTS[random.nextInt(TEXTS.length)] + " changed");
+                changed.setPriority(Priority.values()[random.nextInt(3)]);
+                changed.setDone(!toDo.getDone());
+                changed.setDoneDate(changed.getDone() ? new Date(toDo.getCreationDate().getTime() + 3_600_000L) : null);
+                saveBoth(changed);
+            } else if (roll < 8) {
+                reference.delete(toDo);
+                columnar.delete(toDo);
+            } else if (roll < 10) {
+                Date doneDate = new Date(toDo.getCreationDate().getTime() + 7_200_000L);
+                assertEquals(reference.markDone(toDo.getId(), doneDate, null), columnar.markDone(toDo.getId(), doneDate, null));
+            } else if (roll < 11) {
+                assertEquals(reference.markUndone(toDo.getId(), null), columnar.markUndone(toDo.getId(), null));
+            } else if (roll < 12) {
+                assertEquals(1, reference.deleteById(toDo.getId(), null));
+                assertEquals(1, columnar.deleteById(toDo.getId(), null));
+            }
+        }
+    }
+
+    private void saveBoth(ToDo toDo) {
+        reference.save(new ToDo(toDo));
+        columnar.save(new ToDo(toDo));
+    }
+
+    private static List<UUID> walk(ToDoRepository repository, Sort sort) {
+        List<UUID> ids = new ArrayList<>();
+        Window<ToDo> window = repository.findByDoneTextAndPriority(null, null, null, ScrollPosition.keyset(), sort, 30);
+        ids.addAll(ids(window.getContent()));
+        while (window.hasNext()) {
+            window = repository.findByDoneTextAndPriority(null, null, null,
+                (KeysetScrollPosition) window.positionAt(window.size() - 1), sort, 30);
+            ids.addAll(ids(window.getContent()));
+        }
+        return ids;
+    }
+
+    private static List<Sort> sorts() {
+        return List.of(
+            Sort.unsorted(),
+            Sort.by(Sort.Order.asc("dueDate")),
+            Sort.by(Sort.Order.desc("dueDate")),
+            Sort.by(Sort.Order.desc("priority")),
+            Sort.by(Sort.Order.asc("priority"), Sort.Order.desc("dueDate")));
+    }
+
+    private static List<UUID> ids(List<ToDo> toDos) {
+        return toDos.stream().map(ToDo::getId).toList();
+    }
+
+    private static ToDo newToDo(String text, Priority priority, Date creationDate) {
+        ToDo toDo = new ToDo();
+        toDo.setId(UUID.randomUUID());
+        toDo.setText(text);
+        toDo.setPriority(priority);
+        toDo.setDone(false);
+        toDo.setCreationDate(creationDate);
+        return toDo;
+    }
+}
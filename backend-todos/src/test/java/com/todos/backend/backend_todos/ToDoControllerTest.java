@@ -2,6 +2,9 @@ package com.todos.backend.backend_todos;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.text.SimpleDateFormat;
@@ -12,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -20,6 +24,9 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.todos.backend.backend_todos.controllers.ToDoController;
 import com.todos.backend.backend_todos.dto.NewToDo;
+import com.todos.backend.backend_todos.dto.ToDoStatistics;
+import com.todos.backend.backend_todos.dto.ToDoTotal;
+import com.todos.backend.backend_todos.exceptions.ToDoConflictException;
 import com.todos.backend.backend_todos.exceptions.ToDoNotFoundException;
 import com.todos.backend.backend_todos.models.Priority;
 import com.todos.backend.backend_todos.models.ToDo;
@@ -101,7 +108,7 @@ public class ToDoControllerTest {
         updatedToDoResponse.setId(existingId);
         updatedToDoResponse.setText(updatedToDo.getText());
         updatedToDoResponse.setPriority(updatedToDo.getPriority());
-        when(toDoService.updateToDo(eq(existingId), any(NewToDo.class))).thenReturn(updatedToDoResponse);
+        when(toDoService.updateToDo(eq(existingId), any(NewToDo.class), isNull())).thenReturn(updatedToDoResponse);
 
         // Assert
         mockMvc.perform(MockMvcRequestBuilders.put("/todos/" + existingId)
@@ -134,7 +141,7 @@ public class ToDoControllerTest {
         updatedToDo.setPriority(Priority.LOW);
         
         // Mock Service Layer response
-        when(toDoService.updateToDo(eq(nonExistingId), any(NewToDo.class))).thenThrow(new ToDoNotFoundException("To Do not found with id " + nonExistingId));
+        when(toDoService.updateToDo(eq(nonExistingId), any(NewToDo.class), isNull())).thenThrow(new ToDoNotFoundException("To Do not found with id " + nonExistingId));
 
         // Assert
         mockMvc.perform(MockMvcRequestBuilders.put("/todos/" + nonExistingId)
@@ -144,6 +151,37 @@ public class ToDoControllerTest {
             .andExpect(MockMvcResultMatchers.jsonPath("$.error").value("To Do not found with id " + nonExistingId));
     }
 
+    @Test
+    public void updateWithIfMatch_thenPassesTheVersionAndReturnsConflictWhenStale() throws Exception {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        NewToDo updatedToDo = new NewToDo();
+        updatedToDo.setText("Updating the text field!");
+        updatedToDo.setPriority(Priority.LOW);
+        ToDo updatedToDoResponse = new ToDo();
+        updatedToDoResponse.setId(id);
+        updatedToDoResponse.setVersion(4L);
+        when(toDoService.updateToDo(eq(id), any(NewToDo.class), eq(3L))).thenReturn(updatedToDoResponse);
+        when(toDoService.updateToDo(eq(id), any(NewToDo.class), eq(2L))).thenThrow(new ToDoConflictException("To Do " + id + " is at version 3, not 2"));
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.put("/todos/" + id)
+            .header("If-Match", "\"3\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(updatedToDo)))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.header().string("ETag", "\"4\""))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.version").value(4));
+        mockMvc.perform(MockMvcRequestBuilders.put("/todos/" + id)
+            .header("If-Match", "\"2\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(updatedToDo)))
+            .andExpect(MockMvcResultMatchers.status().isConflict())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.error").value("To Do " + id + " is at version 3, not 2"));
+        mockMvc.perform(MockMvcRequestBuilders.put("/todos/" + id + "/done").header("If-Match", "latest"))
+            .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     @Test
     public void markAsDoneToDoExists_thenReturnsOkStatus() throws Exception {
         // Arrange
@@ -156,7 +194,7 @@ public class ToDoControllerTest {
         Date doneDate = new Date();
         String strDate = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(doneDate);
         updatedToDoResponse.setDoneDate(doneDate);
-        when(toDoService.completeToDo(eq(existingId))).thenReturn(updatedToDoResponse);
+        when(toDoService.completeToDo(eq(existingId), isNull())).thenReturn(updatedToDoResponse);
 
         // Assert
         mockMvc.perform(MockMvcRequestBuilders.put("/todos/" + existingId + "/done"))
@@ -171,7 +209,7 @@ public class ToDoControllerTest {
         UUID nonExistingId = UUID.randomUUID();
         
         // Mock Service Layer response
-        when(toDoService.completeToDo(eq(nonExistingId))).thenThrow(new ToDoNotFoundException("To Do not found with id " + nonExistingId));
+        when(toDoService.completeToDo(eq(nonExistingId), isNull())).thenThrow(new ToDoNotFoundException("To Do not found with id " + nonExistingId));
 
         // Assert
         mockMvc.perform(MockMvcRequestBuilders.put("/todos/" + nonExistingId + "/done"))
@@ -179,5 +217,46 @@ public class ToDoControllerTest {
             .andExpect(MockMvcResultMatchers.jsonPath("$.error").value("To Do not found with id " + nonExistingId));
     }
 
-    
+    @Test
+    public void getToDosWithMatchingETag_thenReturnsNotModifiedWithoutQuerying() throws Exception {
+        // Arrange
+        when(toDoService.getDataVersion()).thenReturn(7L);
+        when(toDoService.getAllToDosFilterAndSort(0, 10, null, null, null, "", ToDoTotal.EXACT)).thenReturn(Page.empty());
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/todos"))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.header().exists("ETag"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos").header("If-None-Match", eTag))
+            .andExpect(MockMvcResultMatchers.status().isNotModified());
+        verify(toDoService, times(1)).getAllToDosFilterAndSort(0, 10, null, null, null, "", ToDoTotal.EXACT);
+
+        // A write changes the version, so the same tag gets a full response again
+        when(toDoService.getDataVersion()).thenReturn(8L);
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos").header("If-None-Match", eTag))
+            .andExpect(MockMvcResultMatchers.status().isOk());
+        // Another query never shares the tag
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos?done=true").header("If-None-Match", eTag))
+            .andExpect(MockMvcResultMatchers.status().isOk());
+        // Not even one whose String.hashCode() is the same ("Aa" and "BB")
+        String textETag = mockMvc.perform(MockMvcRequestBuilders.get("/todos?text=Aa"))
+            .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos?text=BB").header("If-None-Match", textETag))
+            .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    @Test
+    public void getStatisticsWithMatchingETag_thenReturnsNotModified() throws Exception {
+        // Arrange
+        when(toDoService.getDataVersion()).thenReturn(3L);
+        when(toDoService.geToDoStatistics()).thenReturn(new ToDoStatistics());
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/todos/stats"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos/stats").header("If-None-Match", eTag))
+            .andExpect(MockMvcResultMatchers.status().isNotModified());
+        verify(toDoService, times(1)).geToDoStatistics();
+    }
 }
@@ -0,0 +1,321 @@
+package com.todos.backend.backend_todos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoDBRepository;
+import com.todos.backend.backend_todos.repositories.ToDoRepository;
+import com.todos.backend.backend_todos.repositories.ToDoTieredRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Only loads the JPA layer, backed by an embedded H2 database
+@DataJpaTest
+public class ToDoDBRepositoryTest {
+
+    @Autowired
+    private ToDoDBRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void computeStatistics_WhenNoToDoIsDone_ReturnsZeros() {
+        // Arrange
+        repository.saveAndFlush(newToDo(Priority.LOW, 0, null));
+
+        // Act
+        ToDoStatisticsProjection statistics = repository.computeStatistics();
+
+        // Assert
+        assertEquals(0, statistics.getTotalDone());
+        assertEquals(0, statistics.getTotalDoneSeconds());
+        assertEquals(0, statistics.getTotalHighDoneSeconds());
+    }
+
+    @Test
+    public void computeStatistics_AggregatesDoneToDosPerPriority() {
+        // Arrange
+        repository.saveAndFlush(newToDo(Priority.LOW, 0, 60_500L));
+        repository.saveAndFlush(newToDo(Priority.LOW, 1_000L, 181_000L));
+        repository.saveAndFlush(newToDo(Priority.MEDIUM, 0, 10_999L));
+        repository.saveAndFlush(newToDo(Priority.HIGH, 0, 3_600_000L));
+        repository.saveAndFlush(newToDo(Priority.HIGH, 0, null));
+
+        // Act
+        ToDoStatisticsProjection statistics = repository.computeStatistics();
+
+        // Assert
+        assertEquals(4, statistics.getTotalDone());
+        assertEquals(60 + 181 + 10 + 3600, statistics.getTotalDoneSeconds());
+        assertEquals(2, statistics.getTotalLowDone());
+        assertEquals(241, statistics.getTotalLowDoneSeconds());
+        assertEquals(1, statistics.getTotalMediumDone());
+        assertEquals(10, statistics.getTotalMediumDoneSeconds());
+        assertEquals(1, statistics.getTotalHighDone());
+        assertEquals(3600, statistics.getTotalHighDoneSeconds());
+    }
+
+    @Test
+    public void cursorWindows_WalkEveryRowOnceInSortOrder() {
+        // Arrange
+        for (int i = 0; i < 40; i++) {
+            ToDo toDo = newToDo(Priority.values()[i % 3], i % 5 * 1_000L, null);
+            toDo.setDueDate(i % 4 == 0 ? null : new Date(1_700_000_000_000L + i % 7 * 86_400_000L));
+            repository.saveAndFlush(toDo);
+        }
+        Sort sort = Sort.by(Sort.Order.desc("priority"), Sort.Order.asc("dueDate"));
+
+        // Act
+        List<ToDo> walked = new ArrayList<>();
+        KeysetScrollPosition position = ScrollPosition.keyset();
+        Window<ToDo> window;
+        do {
+            window = repository.findByDoneTextAndPriority(null, null, null, position, sort, 6);
+            walked.addAll(window.getContent());
+            if (window.hasNext()) {
+                position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            }
+        } while (window.hasNext());
+
+        // Assert
+        assertEquals(40, walked.size());
+        assertEquals(40, walked.stream().map(ToDo::getId).distinct().count());
+        for (int i = 1; i < walked.size(); i++) {
+            ToDo previous = walked.get(i - 1);
+            ToDo current = walked.get(i);
+            assertTrue(previous.getPriority().compareTo(current.getPriority()) >= 0);
+            if (previous.getPriority() == current.getPriority() && previous.getDueDate() != null) {
+                assertTrue(current.getDueDate() != null && !current.getDueDate().before(previous.getDueDate()));
+            }
+        }
+    }
+
+    @Test
+    public void findByDoneTextAndPriority_PagesWithOnlyTheSuppliedFilters_WithoutOverlap() {
+        // Arrange
+        for (int i = 0; i < 30; i++) {
+            ToDo toDo = newToDo(Priority.values()[i % 3], 0, i % 2 == 0 ? 1_000L : null);
+            toDo.setDueDate(new Date(1_700_000_000_000L + i % 2 * 86_400_000L));
+            repository.saveAndFlush(toDo);
+        }
+        PageRequest firstPage = PageRequest.of(0, 3, Sort.by("dueDate"));
+
+        // Act
+        Page<ToDo> first = repository.findByDoneTextAndPriority(true, null, Priority.HIGH, firstPage);
+        Page<ToDo> second = repository.findByDoneTextAndPriority(true, null, Priority.HIGH, firstPage.next());
+        Page<ToDo> byText = repository.findByDoneTextAndPriority(null, "PRIORITY low", null, PageRequest.of(0, 20));
+        Slice<ToDo> secondSlice = repository.findSliceByDoneTextAndPriority(true, null, Priority.HIGH, firstPage.next());
+
+        // Assert
+        assertEquals(5, first.getTotalElements());
+        assertEquals(5, first.getContent().size() + second.getContent().size());
+        assertEquals(5, Stream.concat(first.getContent().stream(), second.getContent().stream()).map(ToDo::getId).distinct().count(),
+            "Rows with the same due date should be ordered by id, so pages never overlap");
+        assertEquals(10, byText.getTotalElements());
+        assertEquals(second.getContent().stream().map(ToDo::getId).toList(), secondSlice.getContent().stream().map(ToDo::getId).toList());
+        assertFalse(secondSlice.hasNext());
+        assertEquals(10, repository.countByDoneTextAndPriority(null, "PRIORITY low", null));
+    }
+
+    @Test
+    public void schema_HasTheCompositeIndexesOfTheEntity() {
+        // Act
+        List<String> indexes = jdbcTemplate.queryForList(
+            "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'TO_DO'", String.class);
+
+        // Assert
+        assertTrue(indexes.contains("IDX_TO_DO_DONE_PRIORITY_DUE_DATE"), indexes.toString());
+        assertTrue(indexes.contains("IDX_TO_DO_DONE_PRIORITY_DUE_DATE_DESC"), indexes.toString());
+        assertTrue(indexes.contains("IDX_TO_DO_DONE_CREATION_DATE"), indexes.toString());
+        assertTrue(indexes.contains("IDX_TO_DO_PRIORITY_CREATION_DATE"), indexes.toString());
+    }
+
+    // Outside the test transaction: cached entries only become readable once their transaction commits
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findById_RepeatedLookups_AreServedFromTheSecondLevelCache() {
+        // Arrange
+        // Through the interface ToDoService uses
+        ToDoRepository store = repository;
+        ToDo saved = store.save(newToDo(Priority.LOW, 0, null));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        store.findById(saved.getId());
+        statistics.clear();
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            store.findById(saved.getId()).orElseThrow();
+        }
+
+        // Assert
+        assertEquals(0, statistics.getPrepareStatementCount(), "Lookups by id should not reach the database");
+        assertEquals(5, statistics.getSecondLevelCacheHitCount());
+        repository.deleteAll(List.of(saved));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findByDoneTextAndPriority_RepeatedPages_AreServedFromTheQueryCacheUntilAWrite() {
+        // Arrange
+        ToDo first = repository.saveAndFlush(newToDo(Priority.HIGH, 0, null));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        PageRequest pageable = PageRequest.of(0, 10);
+        repository.findByDoneTextAndPriority(false, "priority", Priority.HIGH, pageable);
+        statistics.clear();
+
+        // Act
+        Page<ToDo> cached = repository.findByDoneTextAndPriority(false, "priority", Priority.HIGH, pageable);
+        long cachedStatements = statistics.getPrepareStatementCount();
+        ToDo second = repository.saveAndFlush(newToDo(Priority.HIGH, 1_000L, null));
+        Page<ToDo> afterWrite = repository.findByDoneTextAndPriority(false, "priority", Priority.HIGH, pageable);
+
+        // Assert
+        assertEquals(0, cachedStatements, "A repeated page should not reach the database");
+        assertEquals(1, cached.getTotalElements());
+        assertTrue(statistics.getQueryCacheHitCount() >= 1);
+        assertEquals(2, afterWrite.getTotalElements(), "A write should invalidate the cached results");
+        repository.deleteAll(List.of(first, second));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void save_OfAStaleVersion_IsRejected() {
+        // Arrange
+        ToDoRepository store = repository;
+        ToDo saved = store.save(newToDo(Priority.MEDIUM, 0, null));
+        ToDo first = store.findById(saved.getId()).orElseThrow();
+        ToDo second = store.findById(saved.getId()).orElseThrow();
+
+        // Act
+        first.setPriority(Priority.HIGH);
+        ToDo updated = store.save(first);
+        second.setPriority(Priority.LOW);
+
+        // Assert
+        assertEquals(first.getVersion() + 1, updated.getVersion());
+        assertThrows(OptimisticLockingFailureException.class, () -> store.save(second));
+        assertEquals(Priority.HIGH, store.findById(saved.getId()).orElseThrow().getPriority());
+        repository.deleteAll(List.of(updated));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void markDoneMarkUndoneAndDeleteById_AreSingleStatements_CountingTheRowsChanged() {
+        // Arrange
+        ToDoRepository store = repository;
+        ToDo saved = repository.saveAndFlush(newToDo(Priority.LOW, 0, null));
+        Date doneDate = new Date(1_700_000_060_000L);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        int stale = repository.markDone(saved.getId(), doneDate, saved.getVersion() + 1);
+        int done = repository.markDone(saved.getId(), doneDate, saved.getVersion());
+        long statements = statistics.getPrepareStatementCount();
+        ToDo loaded = store.findById(saved.getId()).orElseThrow();
+        int undone = repository.markUndone(saved.getId(), null);
+
+        // Assert
+        assertEquals(0, stale);
+        assertEquals(1, done);
+        assertEquals(2, statements, "Each change should be one UPDATE, without reading the To Do");
+        assertTrue(loaded.getDone());
+        assertEquals(doneDate.getTime(), loaded.getDoneDate().getTime());
+        assertEquals(saved.getVersion() + 1, loaded.getVersion());
+        assertEquals(1, undone);
+        assertEquals(0, repository.deleteById(saved.getId(), loaded.getVersion()), "The undo should have moved the version on");
+        assertEquals(1, repository.deleteById(saved.getId(), null));
+        assertFalse(repository.existsById(saved.getId()));
+    }
+
+    @Test
+    public void rowsInsertedWithoutAVersion_StartAtZero_AndAreVersionedByEveryChange() {
+        // Arrange, like the rows of data.sql
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO to_do (id, creation_date, text, done, priority) VALUES (?, CURRENT_TIMESTAMP, 'Imported', FALSE, 0)", id);
+        ToDoRepository store = repository;
+
+        // Act
+        int done = repository.markDone(id, new Date(), 0L);
+
+        // Assert
+        assertEquals(1, done);
+        assertEquals(1L, store.findById(id).orElseThrow().getVersion());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeAsIs_KeepsIdsAndVersions_AndTheTieredRepositoryWarmsUpFromIt() throws Exception {
+        // Arrange
+        ToDo inserted = newToDo(Priority.HIGH, 0, null);
+        inserted.setId(UUID.randomUUID());
+        inserted.setVersion(4L);
+        ToDo gone = repository.saveAndFlush(newToDo(Priority.LOW, 0, null));
+        ToDoRepository store = repository;
+
+        // Act
+        repository.writeAsIs(List.of(inserted), List.of(gone.getId()));
+        assertEquals(4L, store.findById(inserted.getId()).orElseThrow().getVersion());
+        inserted.setDone(true);
+        inserted.setVersion(7L);
+        repository.writeAsIs(List.of(inserted), List.of());
+        assertEquals(7L, store.findById(inserted.getId()).orElseThrow().getVersion(), "The cached row should have been dropped");
+        ToDoTieredRepository tiered = new ToDoTieredRepository(repository, Duration.ofMillis(10), 10, 10);
+        tiered.start();
+        tiered.close();
+
+        // Assert
+        ToDo warmed = tiered.findById(inserted.getId()).orElseThrow();
+        assertEquals(7L, warmed.getVersion());
+        assertTrue(warmed.getDone());
+        assertFalse(tiered.findById(gone.getId()).isPresent());
+        assertFalse(repository.existsById(gone.getId()));
+        repository.deleteAllByIdInBatch(List.of(inserted.getId()));
+    }
+
+    // Creates a To Do created at the given epoch millis, done after doneAfterMillis when not null
+    private ToDo newToDo(Priority priority, long createdAt, Long doneAfterMillis) {
+        ToDo toDo = new ToDo();
+        toDo.setText("Task with priority " + priority);
+        toDo.setPriority(priority);
+        toDo.setCreationDate(new Date(1_700_000_000_000L + createdAt));
+        toDo.setDone(doneAfterMillis != null);
+        if (doneAfterMillis != null) {
+            toDo.setDoneDate(new Date(toDo.getCreationDate().getTime() + doneAfterMillis));
+        }
+        return toDo;
+    }
+}
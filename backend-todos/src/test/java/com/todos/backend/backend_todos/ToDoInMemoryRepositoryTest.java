@@ -0,0 +1,520 @@
+package com.todos.backend.backend_todos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoInMemoryRepository;
+import com.todos.backend.backend_todos.repositories.ToDoKeyset;
+
+public class ToDoInMemoryRepositoryTest {
+
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int OPERATIONS_PER_WRITER = 2_000;
+
+    private ToDoInMemoryRepository repository;
+
+    @BeforeEach
+    public void setup() {
+        repository = new ToDoInMemoryRepository();
+    }
+
+    @Test
+    public void findById_ReturnsCopy_SoCallerMutationsAreNotVisibleUntilSaved() {
+        // Arrange
+        ToDo toDo = newToDo("Write the report", Priority.HIGH);
+        repository.save(toDo);
+
+        // Act
+        ToDo loaded = repository.findById(toDo.getId()).orElseThrow();
+        loaded.setDone(true);
+
+        // Assert
+        assertFalse(repository.findById(toDo.getId()).orElseThrow().getDone(), "Unsaved changes should not leak into the store");
+        repository.save(loaded);
+        assertTrue(repository.findById(toDo.getId()).orElseThrow().getDone(), "Saved changes should be visible");
+    }
+
+    @Test
+    public void saveBatch_WithOneStaleVersion_SavesNothing() {
+        // Arrange
+        ToDo first = repository.save(newToDo("First of the batch", Priority.LOW));
+        ToDo second = repository.save(newToDo("Second of the batch", Priority.LOW));
+        ToDo firstRead = repository.findById(first.getId()).orElseThrow();
+        ToDo secondRead = repository.findById(second.getId()).orElseThrow();
+        ToDo concurrent = repository.findById(second.getId()).orElseThrow();
+        concurrent.setText("Changed meanwhile");
+        repository.save(concurrent);
+
+        // Act
+        firstRead.setDone(true);
+        secondRead.setDone(true);
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.saveBatch(List.of(firstRead, secondRead)));
+
+        // Assert
+        ToDo storedFirst = repository.findById(first.getId()).orElseThrow();
+        assertFalse(storedFirst.getDone(), "The To Do before the conflict should not have been saved");
+        assertEquals(first.getVersion(), storedFirst.getVersion());
+        assertEquals(0, repository.findByDoneTextAndPriority(true, null, null, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    public void findByDoneAndPriority_FollowsRowsMovedBetweenIndexes() {
+        // Arrange
+        ToDo toDo = repository.save(newToDo("Move me around", Priority.LOW));
+        repository.save(newToDo("Stay where you are", Priority.LOW));
+
+        // Act
+        ToDo loaded = repository.findById(toDo.getId()).orElseThrow();
+        loaded.setPriority(Priority.HIGH);
+        loaded.setDone(true);
+        repository.save(loaded);
+
+        // Assert
+        Page<ToDo> doneHigh = repository.findByDoneTextAndPriority(true, null, Priority.HIGH, PageRequest.of(0, 10));
+        assertEquals(1, doneHigh.getTotalElements());
+        assertEquals(toDo.getId(), doneHigh.getContent().get(0).getId());
+        assertEquals(1, repository.findByDoneTextAndPriority(false, null, Priority.LOW, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(0, repository.findByDoneTextAndPriority(true, null, Priority.LOW, PageRequest.of(0, 10)).getTotalElements());
+
+        repository.delete(loaded);
+        assertEquals(0, repository.findByDoneTextAndPriority(true, null, Priority.HIGH, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    public void markDoneAndDeleteById_ChangeOnlyTheExpectedVersion_AndCountTheRows() {
+        // Arrange
+        ToDo toDo = repository.save(newToDo("Close the sprint", Priority.MEDIUM));
+        Date doneDate = new Date(1_700_000_000_000L);
+
+        // Act
+        int stale = repository.markDone(toDo.getId(), doneDate, 5L);
+        int done = repository.markDone(toDo.getId(), doneDate, 0L);
+        int doneAgain = repository.markDone(toDo.getId(), new Date(), null);
+        ToDo loaded = repository.findById(toDo.getId()).orElseThrow();
+
+        // Assert
+        assertEquals(0, stale);
+        assertEquals(1, done);
+        assertEquals(1, doneAgain);
+        assertTrue(loaded.getDone());
+        assertEquals(doneDate, loaded.getDoneDate(), "Completing again should keep the first done date");
+        assertEquals(2L, loaded.getVersion());
+        assertEquals(1, repository.findByDoneTextAndPriority(true, null, Priority.MEDIUM, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(0, repository.deleteById(toDo.getId(), 1L));
+        assertEquals(1, repository.deleteById(toDo.getId(), 2L));
+        assertEquals(0, repository.markUndone(toDo.getId(), null), "A deleted To Do should not be changed");
+    }
+
+    @Test
+    public void textSearch_MatchesCaseInsensitiveSubstringsAfterUpdates() {
+        // Arrange
+        ToDo groceries = repository.save(newToDo("Buy GROCERIES for the week", Priority.LOW));
+        repository.save(newToDo("Review the grocery budget", Priority.HIGH));
+        repository.save(newToDo("Call the bank", Priority.MEDIUM));
+
+        // Act & Assert
+        assertEquals(2, repository.findByDoneTextAndPriority(null, "Grocer", null, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(1, repository.findByDoneTextAndPriority(null, "groceries", null, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(1, repository.findByDoneTextAndPriority(null, "grocer", Priority.HIGH, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(3, repository.findByDoneTextAndPriority(null, "e", null, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(0, repository.findByDoneTextAndPriority(null, "xyz", null, PageRequest.of(0, 10)).getTotalElements());
+
+        ToDo loaded = repository.findById(groceries.getId()).orElseThrow();
+        loaded.setText("Buy flowers");
+        repository.save(loaded);
+        assertEquals(1, repository.findByDoneTextAndPriority(null, "grocer", null, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(1, repository.findByDoneTextAndPriority(null, "FLOWER", null, PageRequest.of(0, 10)).getTotalElements());
+
+        repository.delete(loaded);
+        assertEquals(0, repository.findByDoneTextAndPriority(null, "flower", null, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    public void sortedPages_WalkEveryRowOnceInRequestedOrder() {
+        // Arrange
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 500; i++) {
+            ToDo toDo = newToDo("Task " + i, Priority.values()[random.nextInt(3)]);
+            toDo.setCreationDate(new Date(random.nextLong(1_000_000L)));
+            toDo.setDueDate(random.nextInt(4) == 0 ? null : new Date(random.nextLong(50) * 86_400_000L));
+            toDo.setDone(random.nextBoolean());
+            repository.save(toDo);
+        }
+        List<Sort> sorts = List.of(
+            Sort.unsorted(),
+            Sort.by(Sort.Order.asc("dueDate")),
+            Sort.by(Sort.Order.desc("dueDate")),
+            Sort.by(Sort.Order.desc("priority")),
+            Sort.by(Sort.Order.asc("priority"), Sort.Order.desc("dueDate")),
+            Sort.by(Sort.Order.desc("dueDate"), Sort.Order.asc("priority")));
+
+        for (Sort sort : sorts) {
+            for (Boolean done : new Boolean[] { null, true, false }) {
+                // Without text the ordered index is walked, with text the bounded top-K path is used
+                for (String text : new String[] { null, "TASK 1" }) {
+                    // Act
+                    List<ToDo> walked = new ArrayList<>();
+                    Page<ToDo> page;
+                    int pageNumber = 0;
+                    do {
+                        page = repository.findByDoneTextAndPriority(done, text, null, PageRequest.of(pageNumber++, 7, sort));
+                        walked.addAll(page.getContent());
+                    } while (page.hasNext());
+
+                    // Assert
+                    assertEquals(page.getTotalElements(), walked.size(), "Every row should be returned once for " + sort);
+                    assertEquals(walked.size(), walked.stream().map(ToDo::getId).distinct().count(), "No row should repeat for " + sort);
+                    for (int i = 1; i < walked.size(); i++) {
+                        assertTrue(compare(sort, walked.get(i - 1), walked.get(i)) <= 0, "Rows out of order for " + sort);
+                    }
+                    walked.forEach(toDo -> assertTrue(done == null || done.equals(toDo.getDone())));
+                    if (text != null) {
+                        walked.forEach(toDo -> assertTrue(toDo.getText().startsWith("Task 1")));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void slices_MatchPagesWithoutCounting() {
+        // Arrange
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 200; i++) {
+            ToDo toDo = newToDo("Task " + i, Priority.values()[random.nextInt(3)]);
+            toDo.setCreationDate(new Date(random.nextLong(1_000L)));
+            toDo.setDueDate(random.nextInt(4) == 0 ? null : new Date(random.nextLong(10) * 86_400_000L));
+            toDo.setDone(random.nextBoolean());
+            repository.save(toDo);
+        }
+
+        for (Sort sort : List.of(Sort.unsorted(), Sort.by(Sort.Order.desc("dueDate")), Sort.by(Sort.Order.asc("priority")))) {
+            // Too short for the trigram index, a trigram search, and no text
+            for (String text : new String[] { null, "k 1", "task 1" }) {
+                for (int pageNumber = 0; pageNumber < 12; pageNumber++) {
+                    PageRequest pageable = PageRequest.of(pageNumber, 9, sort);
+
+                    // Act
+                    Page<ToDo> page = repository.findByDoneTextAndPriority(false, text, null, pageable);
+                    Slice<ToDo> slice = repository.findSliceByDoneTextAndPriority(false, text, null, pageable);
+
+                    // Assert
+                    assertEquals(page.getContent().stream().map(ToDo::getId).toList(), slice.getContent().stream().map(ToDo::getId).toList(),
+                        "Slice " + pageNumber + " should hold the page rows for " + sort + " " + text);
+                    assertEquals(page.hasNext(), slice.hasNext());
+                }
+                assertEquals(repository.findByDoneTextAndPriority(false, text, null, PageRequest.of(0, 1)).getTotalElements(),
+                    repository.countByDoneTextAndPriority(false, text, null));
+            }
+        }
+    }
+
+    @Test
+    public void cursorWindows_MatchOffsetPagesAcrossSorts() {
+        // Arrange
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 300; i++) {
+            ToDo toDo = newToDo("Task " + i, Priority.values()[random.nextInt(3)]);
+            toDo.setCreationDate(new Date(random.nextLong(1_000L)));
+            toDo.setDueDate(random.nextInt(4) == 0 ? null : new Date(random.nextLong(10) * 86_400_000L));
+            toDo.setDone(random.nextBoolean());
+            repository.save(toDo);
+        }
+        List<Sort> sorts = List.of(
+            Sort.unsorted(),
+            Sort.by(Sort.Order.asc("dueDate")),
+            Sort.by(Sort.Order.desc("dueDate")),
+            Sort.by(Sort.Order.desc("priority")),
+            Sort.by(Sort.Order.asc("priority"), Sort.Order.desc("dueDate")),
+            Sort.by(Sort.Order.desc("dueDate"), Sort.Order.asc("priority")),
+            Sort.by(Sort.Order.asc("dueDate"), Sort.Order.desc("priority")));
+
+        for (Sort sort : sorts) {
+            for (Boolean done : new Boolean[] { null, true }) {
+                for (String text : new String[] { null, "task 2" }) {
+                    List<ToDo> expected = repository.findByDoneTextAndPriority(done, text, null, PageRequest.of(0, 1_000, sort)).getContent();
+
+                    // Act
+                    List<ToDo> walked = new ArrayList<>();
+                    KeysetScrollPosition position = ScrollPosition.keyset();
+                    Window<ToDo> window;
+                    do {
+                        window = repository.findByDoneTextAndPriority(done, text, null, position, sort, 9);
+                        walked.addAll(window.getContent());
+                        if (window.hasNext()) {
+                            // Round trip through the opaque cursor like a client would
+                            position = ToDoKeyset.decode(ToDoKeyset.encode((KeysetScrollPosition) window.positionAt(window.size() - 1)));
+                        }
+                    } while (window.hasNext());
+
+                    // Assert
+                    assertEquals(expected.stream().map(ToDo::getId).toList(), walked.stream().map(ToDo::getId).toList(),
+                        "Cursor windows should follow the offset order for " + sort);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void concurrentCreateCompleteDeleteAndList_KeepsStoreConsistent() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        // Expected final state of every To Do, owned by the writer that created it
+        Map<UUID, Boolean> expectedDone = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        // Act
+        for (int w = 0; w < WRITERS; w++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<UUID> owned = new ArrayList<>();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                    int operation = owned.isEmpty() ? 0 : random.nextInt(4);
+                    if (operation == 0) {
+                        ToDo toDo = repository.save(newToDo("Task " + i, Priority.values()[random.nextInt(3)]));
+                        owned.add(toDo.getId());
+                        expectedDone.put(toDo.getId(), false);
+                    } else if (operation == 3) {
+                        UUID id = owned.remove(random.nextInt(owned.size()));
+                        repository.delete(repository.findById(id).orElseThrow());
+                        expectedDone.remove(id);
+                    } else {
+                        UUID id = owned.get(random.nextInt(owned.size()));
+                        ToDo toDo = repository.findById(id).orElseThrow();
+                        boolean done = operation == 1;
+                        toDo.setDone(done);
+                        toDo.setDoneDate(done ? new Date() : null);
+                        repository.save(toDo);
+                        expectedDone.put(id, done);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (writing.get()) {
+                    Boolean done = random.nextBoolean() ? null : random.nextBoolean();
+                    Sort sort = random.nextBoolean() ? Sort.by("dueDate") : Sort.by(Sort.Order.desc("priority"));
+                    Page<ToDo> page = repository.findByDoneTextAndPriority(done, "task", null, PageRequest.of(random.nextInt(5), 20, sort));
+                    page.forEach(toDo -> assertTrue(done == null || done.equals(toDo.getDone())));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < WRITERS; i++) {
+            futures.get(i).get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        Page<ToDo> all = repository.findByDoneTextAndPriority(null, null, null, PageRequest.of(0, WRITERS * OPERATIONS_PER_WRITER));
+        assertEquals(expectedDone.size(), all.getTotalElements(), "No create or delete should be lost");
+        for (ToDo toDo : all) {
+            assertEquals(expectedDone.get(toDo.getId()), toDo.getDone(), "No completion should be lost");
+        }
+        long expectedCompleted = expectedDone.values().stream().filter(Boolean::booleanValue).count();
+        assertEquals(expectedCompleted, repository.findByDoneTextAndPriority(true, null, null, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    public void statistics_MatchFullRecomputationAfterConcurrentTransitions() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act: create, complete, uncomplete, re-prioritize and delete from several threads
+        for (int w = 0; w < WRITERS; w++) {
+            futures.add(executor.submit(() -> {
+                List<UUID> owned = new ArrayList<>();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                    int operation = owned.isEmpty() ? 0 : random.nextInt(5);
+                    if (operation == 0) {
+                        ToDo toDo = newToDo("Task " + i, Priority.values()[random.nextInt(3)]);
+                        toDo.setCreationDate(new Date(random.nextLong(1_000_000_000L)));
+                        owned.add(repository.save(toDo).getId());
+                    } else if (operation == 4) {
+                        repository.delete(repository.findById(owned.remove(random.nextInt(owned.size()))).orElseThrow());
+                    } else {
+                        ToDo toDo = repository.findById(owned.get(random.nextInt(owned.size()))).orElseThrow();
+                        if (operation == 1) {
+                            toDo.setDone(true);
+                            toDo.setDoneDate(new Date(toDo.getCreationDate().getTime() + random.nextLong(10_000_000L)));
+                        } else if (operation == 2) {
+                            toDo.setDone(false);
+                            toDo.setDoneDate(null);
+                        } else {
+                            toDo.setPriority(Priority.values()[random.nextInt(3)]);
+                        }
+                        repository.save(toDo);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        long[] count = new long[Priority.values().length];
+        long[] seconds = new long[Priority.values().length];
+        for (ToDo toDo : repository.findByDoneTextAndPriority(true, null, null, PageRequest.of(0, WRITERS * OPERATIONS_PER_WRITER))) {
+            count[toDo.getPriority().ordinal()]++;
+            seconds[toDo.getPriority().ordinal()] += (toDo.getDoneDate().getTime() - toDo.getCreationDate().getTime()) / 1000;
+        }
+        ToDoStatisticsProjection statistics = repository.computeStatistics();
+        assertEquals(count[0] + count[1] + count[2], statistics.getTotalDone());
+        assertEquals(seconds[0] + seconds[1] + seconds[2], statistics.getTotalDoneSeconds());
+        assertEquals(count[Priority.LOW.ordinal()], statistics.getTotalLowDone());
+        assertEquals(seconds[Priority.LOW.ordinal()], statistics.getTotalLowDoneSeconds());
+        assertEquals(count[Priority.MEDIUM.ordinal()], statistics.getTotalMediumDone());
+        assertEquals(seconds[Priority.MEDIUM.ordinal()], statistics.getTotalMediumDoneSeconds());
+        assertEquals(count[Priority.HIGH.ordinal()], statistics.getTotalHighDone());
+        assertEquals(seconds[Priority.HIGH.ordinal()], statistics.getTotalHighDoneSeconds());
+    }
+
+    @Test
+    public void concurrentSavesOfSameToDo_RejectStaleVersions_SoNoUpdateIsLost() throws Exception {
+        // Arrange
+        ToDo shared = repository.save(newToDo("Shared task", Priority.LOW));
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicInteger applied = new AtomicInteger();
+
+        // Act
+        for (int w = 0; w < WRITERS; w++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                    Optional<ToDo> current = repository.findById(shared.getId());
+                    ToDo toDo = current.orElseThrow();
+                    toDo.setDone(!toDo.getDone());
+                    toDo.setDoneDate(toDo.getDone() ? new Date() : null);
+                    try {
+                        repository.save(toDo);
+                        applied.incrementAndGet();
+                    } catch (OptimisticLockingFailureException e) {
+                        // Another writer saved since this one read, its toggle is not applied
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        ToDo result = repository.findById(shared.getId()).orElseThrow();
+        assertEquals(result.getDone(), result.getDoneDate() != null, "Done flag and done date should come from the same write");
+        assertEquals(applied.get(), result.getVersion(), "Every applied save should have been made on top of the previous one");
+        assertEquals(applied.get() % 2 == 1, result.getDone(), "No toggle should be lost");
+        assertEquals(1, repository.findByDoneTextAndPriority(null, null, null, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    public void thousandsOfVirtualThreads_KeepStoreAndIndexesConsistent() throws Exception {
+        // Arrange
+        int threads = 10_000;
+        List<Future<UUID>> futures = new ArrayList<>();
+
+        // Act
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < threads; t++) {
+                int n = t;
+                futures.add(executor.submit(() -> {
+                    ToDo toDo = repository.save(newToDo("Virtual task " + n, Priority.values()[n % 3]));
+                    ToDo loaded = repository.findById(toDo.getId()).orElseThrow();
+                    loaded.setDone(n % 2 == 0);
+                    loaded.setDoneDate(loaded.getDone() ? new Date() : null);
+                    repository.save(loaded);
+                    repository.findByDoneTextAndPriority(null, "task " + n, null, PageRequest.of(0, 10));
+                    return toDo.getId();
+                }));
+            }
+        }
+
+        // Assert
+        for (Future<UUID> future : futures) {
+            assertTrue(repository.findById(future.get()).isPresent());
+        }
+        assertEquals(threads, repository.findByDoneTextAndPriority(null, null, null, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(threads / 2, repository.findByDoneTextAndPriority(true, "virtual", null, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(threads / 2, repository.computeStatistics().getTotalDone());
+    }
+
+    private int compare(Sort sort, ToDo a, ToDo b) {
+        if (sort.isUnsorted()) {
+            return a.getCreationDate().compareTo(b.getCreationDate());
+        }
+        for (Sort.Order order : sort) {
+            int result;
+            if (order.getProperty().equals("priority")) {
+                result = a.getPriority().compareTo(b.getPriority());
+            } else if (a.getDueDate() == null || b.getDueDate() == null) {
+                result = Boolean.compare(a.getDueDate() != null, b.getDueDate() != null);
+            } else {
+                result = a.getDueDate().compareTo(b.getDueDate());
+            }
+            if (result != 0) {
+                return order.isAscending() ? result : -result;
+            }
+        }
+        return 0;
+    }
+
+    private ToDo newToDo(String text, Priority priority) {
+        ToDo toDo = new ToDo();
+        toDo.setText(text);
+        toDo.setPriority(priority);
+        toDo.setDone(false);
+        toDo.setCreationDate(new Date());
+        return toDo;
+    }
+}
@@ -2,6 +2,16 @@ package com.todos.backend.backend_todos;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,9 +20,11 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.todos.backend.backend_todos.dto.NewToDo;
 import com.todos.backend.backend_todos.models.Priority;
@@ -20,6 +32,9 @@ import com.todos.backend.backend_todos.models.ToDo;
 import com.todos.backend.backend_todos.repositories.ToDoRepository;
 import com.todos.backend.backend_todos.services.ToDoService;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 // Load the complete application or context
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -39,6 +54,9 @@ public class ToDoIntegrationTest {
     @Autowired
     private ToDoService service;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     public void createWhenInvalidInput_thenReturnsBadRequestStatus() throws Exception {
         // Arrange
@@ -76,4 +94,223 @@ public class ToDoIntegrationTest {
 
     }
 
+    @Test
+    public void batchCreateThenComplete_ReportsEveryItem() throws Exception {
+        // Arrange
+        NewToDo first = new NewToDo();
+        first.setText("Import invoices");
+        first.setPriority(Priority.HIGH);
+        NewToDo invalid = new NewToDo();
+        invalid.setText("");
+        NewToDo second = new NewToDo();
+        second.setText("Import payments");
+        second.setPriority(Priority.LOW);
+
+        // Act
+        String created = mockMvc.perform(MockMvcRequestBuilders.post("/todos/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(List.of(first, invalid, second))))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.succeeded").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].status").value("INVALID"))
+            .andReturn().getResponse().getContentAsString();
+        JsonNode items = objectMapper.readTree(created).get("items");
+        UUID firstId = UUID.fromString(items.get(0).get("id").asText());
+        UUID secondId = UUID.fromString(items.get(2).get("id").asText());
+
+        // Assert
+        mockMvc.perform(MockMvcRequestBuilders.put("/todos/batch/done")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(List.of(firstId, UUID.randomUUID(), secondId))))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.items[0].status").value("DONE"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].status").value("NOT_FOUND"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.items[2].status").value("DONE"));
+        assertTrue(repository.findById(firstId).orElseThrow().getDone());
+        assertNotNull(repository.findById(secondId).orElseThrow().getDoneDate());
+    }
+
+    @Test
+    public void concurrentBatchCompletes_EitherSucceedOrConflict() throws Exception {
+        // Arrange
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            NewToDo toDo = new NewToDo();
+            toDo.setText("Concurrent batch task " + i);
+            toDo.setPriority(Priority.values()[i % 3]);
+            ids.add(service.createToDo(toDo).getId());
+        }
+        String body = objectMapper.writeValueAsString(ids);
+        int requests = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> statuses = new ArrayList<>();
+
+        // Act
+        for (int r = 0; r < requests; r++) {
+            statuses.add(executor.submit(() -> {
+                start.await();
+                return mockMvc.perform(MockMvcRequestBuilders.put("/todos/batch/done")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(body))
+                    .andReturn().getResponse().getStatus();
+            }));
+        }
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Integer> status : statuses) {
+            int code = status.get(60, TimeUnit.SECONDS);
+            assertTrue(code == 200 || code == 409, "A batch racing another one should succeed or conflict, not fail with " + code);
+            if (code == 200) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        // Assert
+        assertTrue(succeeded > 0, "At least one of the batches should have been applied");
+        for (UUID id : ids) {
+            assertTrue(repository.findById(id).orElseThrow().getDone());
+        }
+    }
+
+    @Test
+    public void serviceAndRepositoryCalls_AreTimedWithFilterShape() {
+        // Arrange
+        NewToDo toDo = new NewToDo();
+        toDo.setText("Measure me");
+        toDo.setPriority(Priority.LOW);
+        service.createToDo(toDo);
+
+        // Act
+        service.getAllToDosFilterAndSort(0, 10, true, "measure", null, "dueDate:asc");
+        service.getAllToDosFilterAndSort(0, 10, true, "measure", null, "dueDate:asc,dueDate:desc,dueDate:asc");
+
+        // Assert
+        Timer serviceTimer = meterRegistry.find("todos.service").tag("method", "getAllToDosFilterAndSort").timer();
+        assertNotNull(serviceTimer, "Service operations should be timed");
+        assertTrue(serviceTimer.count() >= 1);
+        Timer repositoryTimer = meterRegistry.find("todos.repository")
+            .tags("method", "findByDoneTextAndPriority", "implementation", "ToDoInMemoryRepository")
+            .tags("filter", "done+text", "sort", "dueDate:asc", "pagination", "offset")
+            .timer();
+        assertNotNull(repositoryTimer, "Repository queries should be timed with their filter shape");
+        assertTrue(repositoryTimer.count() >= 2, "Repeated sort fields should not create new series");
+        assertNotNull(meterRegistry.find("todos.memory.size").gauge(), "In-memory size should be exposed");
+    }
+
+    @Test
+    public void listWithTotalNoneOrEstimate_SkipsOrApproximatesTheCount() throws Exception {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            NewToDo toDo = new NewToDo();
+            toDo.setText("Uncounted chore " + i);
+            toDo.setPriority(Priority.LOW);
+            service.createToDo(toDo);
+        }
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos")
+            .param("text", "uncounted chore").param("size", "2").param("total", "none"))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.last").value(false))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").doesNotExist());
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos")
+            .param("text", "uncounted chore").param("size", "2").param("page", "1").param("total", "none"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.last").value(true));
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos")
+            .param("text", "uncounted chore").param("size", "2").param("total", "estimate"))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(3));
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos").param("total", "maybe"))
+            .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void exportAsNdjsonAndCsv_StreamsEveryMatchingToDo() throws Exception {
+        // Arrange
+        NewToDo toDo = new NewToDo();
+        toDo.setText("Export, \"quoted\" ledger");
+        toDo.setPriority(Priority.HIGH);
+        UUID id = service.createToDo(toDo).getId();
+
+        // Act
+        MvcResult ndjson = mockMvc.perform(MockMvcRequestBuilders.get("/todos/export")
+            .param("format", "ndjson").param("text", "QUOTED\" LEDGER").param("priority", "HIGH"))
+            .andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+        MvcResult csv = mockMvc.perform(MockMvcRequestBuilders.get("/todos/export")
+            .param("format", "csv").param("text", "quoted\" ledger"))
+            .andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+
+        // Assert
+        String[] lines = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(ndjson))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson"))
+            .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(1, lines.length);
+        assertEquals(id.toString(), objectMapper.readTree(lines[0]).get("id").asText());
+
+        lines = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(csv))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType("text/csv"))
+            .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("id,text,priority,done,creationDate,dueDate,doneDate", lines[0]);
+        assertTrue(lines[1].startsWith("\"" + id + "\",\"Export, \"\"quoted\"\" ledger\",HIGH,false,"), lines[1]);
+    }
+
+    @Test
+    public void exportWhenUnknownFormat_thenReturnsBadRequestStatus() throws Exception {
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos/export").param("format", "xml"))
+            .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void importNdjson_SavesValidLinesAndReportsTheOthers() throws Exception {
+        // Arrange
+        String body = String.join("\n",
+            "{\"text\":\"Imported task one\",\"priority\":\"LOW\"}",
+            "{\"text\":\"\",\"priority\":\"LOW\"}",
+            "{\"text\":\"Imported task two\",\"priority\":\"URGENT\"}",
+            "{\"text\":\"Imported task three\",\"priority\":\"HIGH\",\"dueDate\":\"2000-01-01\"}",
+            "{\"text\":\"Imported task four\",\"priority\":\"HIGH\"}");
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.post("/todos/import")
+            .contentType("application/x-ndjson")
+            .content(body))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.accepted").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.rejected").value(3))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].line").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[1].line").value(3))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[2].line").value(4))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[2].error").value("Due date cannot be in the past."));
+        assertEquals(1, service.getAllToDosFilterAndSort(0, 10, null, "imported task four", Priority.HIGH, "").getTotalElements());
+    }
+
+    @Test
+    public void importCsv_ReadsColumnsByHeader() throws Exception {
+        // Arrange
+        String body = "priority,text,dueDate\n"
+            + "MEDIUM,\"Imported, from CSV\",2999-12-31\n"
+            + "LOW,no\n";
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.post("/todos/import")
+            .contentType("text/csv; charset=UTF-8")
+            .content(body))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.accepted").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.rejected").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].line").value(3));
+        assertEquals(1, service.getAllToDosFilterAndSort(0, 10, null, "imported, from csv", Priority.MEDIUM, "").getTotalElements());
+    }
+
 }
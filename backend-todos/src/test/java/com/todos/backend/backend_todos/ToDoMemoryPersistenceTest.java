@@ -0,0 +1,154 @@
+package com.todos.backend.backend_todos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.unit.DataSize;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoInMemoryRepository;
+import com.todos.backend.backend_todos.repositories.ToDoMemoryPersistence;
+import com.todos.backend.backend_todos.repositories.ToDoMemoryPersistence.FsyncPolicy;
+
+public class ToDoMemoryPersistenceTest {
+
+    @TempDir
+    private Path directory;
+
+    private final List<ToDoMemoryPersistence> opened = new ArrayList<>();
+
+    @AfterEach
+    public void closeAll() {
+        opened.forEach(ToDoMemoryPersistence::close);
+    }
+
+    @Test
+    public void restart_RecoversSavesAndDeletesFromTheLog() {
+        // Arrange
+        ToDoMemoryPersistence persistence = persistence(FsyncPolicy.ALWAYS, DataSize.ofMegabytes(1));
+        ToDoInMemoryRepository repository = open(persistence);
+        ToDo kept = repository.save(newToDo("Keep me", Priority.HIGH));
+        ToDo deleted = repository.save(newToDo("Delete me", Priority.LOW));
+        kept.setDone(true);
+        kept.setDoneDate(new Date(kept.getCreationDate().getTime() + 60_000));
+        repository.save(kept);
+        repository.delete(deleted);
+
+        // Act, without the final snapshot of a clean shutdown
+        ToDoInMemoryRepository recovered = open(persistence(FsyncPolicy.ALWAYS, DataSize.ofMegabytes(1)));
+
+        // Assert
+        ToDo restored = recovered.findById(kept.getId()).orElseThrow();
+        assertTrue(restored.getDone());
+        assertEquals(kept.getDoneDate(), restored.getDoneDate());
+        assertEquals("Keep me", restored.getText());
+        assertEquals(1L, restored.getVersion(), "Versions should survive a restart");
+        assertFalse(recovered.findById(deleted.getId()).isPresent());
+        assertEquals(1, recovered.computeStatistics().getTotalHighDone());
+        assertEquals(1, recovered.findByDoneTextAndPriority(null, "keep", null, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    public void snapshot_DeletesOldSegments_AndRecoveryReplaysOnlyTheTail() {
+        // Arrange
+        ToDoMemoryPersistence persistence = persistence(FsyncPolicy.INTERVAL, DataSize.ofKilobytes(4));
+        ToDoInMemoryRepository repository = open(persistence);
+        for (int i = 0; i < 300; i++) {
+            repository.save(newToDo("Before snapshot " + i, Priority.MEDIUM));
+        }
+        int segmentsBefore = persistence.logSegments();
+
+        // Act
+        persistence.snapshot();
+        for (int i = 0; i < 20; i++) {
+            repository.save(newToDo("After snapshot " + i, Priority.LOW));
+        }
+        ToDoInMemoryRepository recovered = open(persistence(FsyncPolicy.INTERVAL, DataSize.ofKilobytes(4)));
+
+        // Assert
+        assertTrue(segmentsBefore > 1, "Small segments should have rolled");
+        assertTrue(persistence.logSegments() < segmentsBefore, "Segments covered by the snapshot should be deleted");
+        assertEquals(300, recovered.findByDoneTextAndPriority(null, null, Priority.MEDIUM, PageRequest.of(0, 1)).getTotalElements());
+        assertEquals(20, recovered.findByDoneTextAndPriority(null, null, Priority.LOW, PageRequest.of(0, 1)).getTotalElements());
+    }
+
+    @Test
+    public void tornRecord_EndsTheLog_AndLaterWritesAreKept() throws Exception {
+        // Arrange
+        ToDoMemoryPersistence persistence = persistence(FsyncPolicy.NONE, DataSize.ofMegabytes(1));
+        ToDoInMemoryRepository repository = open(persistence);
+        ToDo first = repository.save(newToDo("Written whole", Priority.HIGH));
+        ToDo torn = repository.save(newToDo("Written in part", Priority.HIGH));
+        corruptLastRecord();
+
+        // Act
+        ToDoInMemoryRepository recovered = open(persistence(FsyncPolicy.NONE, DataSize.ofMegabytes(1)));
+        ToDo afterCrash = recovered.save(newToDo("Written after the crash", Priority.LOW));
+        ToDoInMemoryRepository recoveredAgain = open(persistence(FsyncPolicy.NONE, DataSize.ofMegabytes(1)));
+
+        // Assert
+        assertTrue(recovered.findById(first.getId()).isPresent());
+        assertFalse(recovered.findById(torn.getId()).isPresent(), "A record failing its checksum should not be replayed");
+        assertTrue(recoveredAgain.findById(afterCrash.getId()).isPresent());
+        assertFalse(recoveredAgain.findById(torn.getId()).isPresent());
+    }
+
+    private ToDoMemoryPersistence persistence(FsyncPolicy fsync, DataSize segmentSize) {
+        ToDoMemoryPersistence persistence = new ToDoMemoryPersistence(directory, fsync, Duration.ofMillis(5), Duration.ofHours(1), segmentSize);
+        opened.add(persistence);
+        return persistence;
+    }
+
+    // Every repository opened on the directory sees what the previous ones logged, like a restart after a crash
+    private static ToDoInMemoryRepository open(ToDoMemoryPersistence persistence) {
+        ToDoInMemoryRepository repository = new ToDoInMemoryRepository(persistence);
+        repository.recover();
+        return repository;
+    }
+
+    // Flips a byte in the payload of the last record of the only log segment
+    private void corruptLastRecord() throws Exception {
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            long position = 0;
+            long last = 0;
+            while (channel.read(header.clear(), position) == 4 && header.getInt(0) > 0) {
+                last = position;
+                position += 8 + header.getInt(0);
+            }
+            ByteBuffer payloadByte = ByteBuffer.allocate(1);
+            channel.read(payloadByte, last + 20);
+            channel.write(ByteBuffer.wrap(new byte[] { (byte) ~payloadByte.get(0) }), last + 20);
+        }
+    }
+
+    private static ToDo newToDo(String text, Priority priority) {
+        ToDo toDo = new ToDo();
+        toDo.setText(text);
+        toDo.setPriority(priority);
+        toDo.setDone(false);
+        toDo.setCreationDate(new Date());
+        return toDo;
+    }
+}
@@ -0,0 +1,139 @@
+package com.todos.backend.backend_todos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.todos.backend.backend_todos.dto.NewToDo;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoInMemoryRepository;
+import com.todos.backend.backend_todos.services.ToDoQueryCache;
+import com.todos.backend.backend_todos.services.ToDoService;
+
+public class ToDoQueryCacheTest {
+
+    private static final int WRITES = 1_000;
+    private static final int READERS = 4;
+
+    private ToDoInMemoryRepository repository;
+    private ToDoService service;
+
+    @BeforeEach
+    public void setup() {
+        repository = new ToDoInMemoryRepository();
+        service = new ToDoService();
+        ReflectionTestUtils.setField(service, "repository", repository);
+        ReflectionTestUtils.setField(service, "queryCache", new ToDoQueryCache(1_000, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    public void pagesReadAfterAWrite_AreNeverStale_WhileReadersKeepFillingTheCache() throws Exception {
+        // Arrange
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add(service.createToDo(newToDo("Task " + i, Priority.values()[i % 3])).getId());
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(READERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            futures.add(readers.submit(() -> {
+                while (running.get()) {
+                    read(ThreadLocalRandom.current().nextInt(3));
+                }
+                return null;
+            }));
+        }
+
+        // Act & Assert
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < WRITES; i++) {
+                UUID id = ids.get(random.nextInt(ids.size()));
+                switch (random.nextInt(4)) {
+                    case 0 -> service.completeToDo(id);
+                    case 1 -> service.uncompleteToDo(id);
+                    case 2 -> service.updateToDo(id, newToDo("Task " + random.nextInt(100), Priority.values()[random.nextInt(3)]));
+                    default -> {
+                        service.deleteToDo(id);
+                        ids.remove(id);
+                        ids.add(service.createToDo(newToDo("Task " + i, Priority.LOW)).getId());
+                    }
+                }
+                // The only writer is this thread, so the repository is the expected state
+                for (int query = 0; query < 3; query++) {
+                    assertEquals(snapshot(expected(query)), snapshot(read(query)), "Stale page after write " + i);
+                }
+            }
+        } finally {
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            readers.shutdown();
+        }
+    }
+
+    @Test
+    public void pagesCachedUnderAnOlderDataVersion_AreNotServedAfterAWrite() {
+        // Arrange
+        ToDo toDo = service.createToDo(newToDo("Task 1", Priority.LOW));
+        assertEquals(snapshot(expected(2)), snapshot(read(2)));
+        long version = service.getDataVersion();
+
+        // Act: written straight to the repository, the cache is keyed on its data version
+        repository.markDone(toDo.getId(), new Date(), null);
+
+        // Assert
+        assertTrue(service.getDataVersion() > version);
+        assertEquals(snapshot(expected(2)), snapshot(read(2)), "The page cached before the write should not be served");
+    }
+
+    private List<ToDo> read(int query) {
+        return switch (query) {
+            case 0 -> service.getAllToDosFilterAndSort(0, 10, null, null, null, "dueDate:asc").getContent();
+            case 1 -> service.getAllToDosFilterAndSort(0, 10, true, null, null, "priority:desc").getContent();
+            default -> service.getAllToDosFilterAndSort(0, 10, null, "task 1", null, "").getContent();
+        };
+    }
+
+    private List<ToDo> expected(int query) {
+        return switch (query) {
+            case 0 -> repository.findByDoneTextAndPriority(null, null, null, PageRequest.of(0, 10, Sort.by(Sort.Order.asc("dueDate")))).getContent();
+            case 1 -> repository.findByDoneTextAndPriority(true, null, null, PageRequest.of(0, 10, Sort.by(Sort.Order.desc("priority")))).getContent();
+            default -> repository.findByDoneTextAndPriority(null, "task 1", null, PageRequest.of(0, 10)).getContent();
+        };
+    }
+
+    // Every field a client sees, in page order
+    private List<String> snapshot(List<ToDo> page) {
+        return page.stream()
+            .map(toDo -> toDo.getId() + " " + toDo.getText() + " " + toDo.getPriority() + " " + toDo.getDone() + " " + toDo.getDoneDate())
+            .toList();
+    }
+
+    private NewToDo newToDo(String text, Priority priority) {
+        NewToDo toDo = new NewToDo();
+        toDo.setText(text);
+        toDo.setPriority(priority);
+        return toDo;
+    }
+}
@@ -4,11 +4,15 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Date;
@@ -20,12 +24,19 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import com.todos.backend.backend_todos.dto.NewToDo;
+import com.todos.backend.backend_todos.dto.ToDoStatistics;
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
+import com.todos.backend.backend_todos.exceptions.ToDoConflictException;
 import com.todos.backend.backend_todos.exceptions.ToDoNotFoundException;
 import com.todos.backend.backend_todos.models.Priority;
 import com.todos.backend.backend_todos.models.ToDo;
 import com.todos.backend.backend_todos.repositories.ToDoRepository;
+import com.todos.backend.backend_todos.services.ToDoQueryCache;
 import com.todos.backend.backend_todos.services.ToDoService;
 
 public class ToDoServiceTest {
@@ -33,6 +44,9 @@ public class ToDoServiceTest {
     @Mock
     private ToDoRepository repository;
 
+    @Spy
+    private ToDoQueryCache queryCache = new ToDoQueryCache(100, Duration.ofMinutes(1));
+
 
     @InjectMocks
     private ToDoService service;
@@ -130,7 +144,7 @@ public class ToDoServiceTest {
         assertEquals("To Do not found with id " + nonExistentId, exception.getMessage(), 
             "The exception message should match");
 
-        // Verify findById was called but save was not
+        // Verify findById was only called to explain the unchanged row
         verify(repository, times(1)).findById(nonExistentId);
         verify(repository, never()).save(any());
     }
@@ -140,17 +154,14 @@ public class ToDoServiceTest {
         // Arrange
         UUID existingId = UUID.randomUUID();
 
-        ToDo existingToDo = new ToDo();
-        existingToDo.setId(existingId);
-
         ToDo updatedEntity = new ToDo();
         updatedEntity.setId(existingId);
         updatedEntity.setDone(true);
         updatedEntity.setDoneDate(new Date());
 
         // Mock repository behavior
-        when(repository.findById(existingId)).thenReturn(Optional.of(existingToDo));
-        when(repository.save(existingToDo)).thenReturn(updatedEntity);
+        when(repository.markDone(eq(existingId), any(Date.class), isNull())).thenReturn(1);
+        when(repository.findById(existingId)).thenReturn(Optional.of(updatedEntity));
 
         // Act
         ToDo result = service.completeToDo(existingId);
@@ -162,9 +173,40 @@ public class ToDoServiceTest {
         assertEquals(updatedEntity.getDoneDate(), result.getDoneDate(), "Date should match");
         
 
-        // Verify interactions with the repository
+        // Verify the To Do was written in one step and only read back for the response
+        verify(repository, times(1)).markDone(eq(existingId), any(Date.class), isNull());
         verify(repository, times(1)).findById(existingId);
-        verify(repository, times(1)).save(existingToDo);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    public void deleteToDo_WhenNoRowIsDeleted_ThrowsNotFound() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        when(repository.deleteById(id, null)).thenReturn(0);
+        when(repository.findById(id)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ToDoNotFoundException.class, () -> service.deleteToDo(id));
+        verify(repository, never()).delete(any());
+    }
+
+    @Test
+    public void updateToDo_WhenExpectedVersionIsStale_ThrowsConflictWithoutSaving() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        ToDo existing = new ToDo();
+        existing.setId(id);
+        existing.setVersion(3L);
+        when(repository.findById(id)).thenReturn(Optional.of(existing));
+        NewToDo updatedToDo = new NewToDo();
+        updatedToDo.setText("Edited elsewhere");
+        updatedToDo.setPriority(Priority.LOW);
+
+        // Act & Assert
+        assertThrows(ToDoConflictException.class, () -> service.updateToDo(id, updatedToDo, 2L));
+        assertThrows(ToDoConflictException.class, () -> service.completeToDo(id, 2L));
+        verify(repository, never()).save(any());
     }
 
     @Test
@@ -188,4 +230,53 @@ public class ToDoServiceTest {
         verify(repository, never()).save(any());
     }
 
+    @Test
+    public void getStatistics_FormatsAveragesFromRepositoryTotals() {
+        // Arrange
+        ToDoStatisticsProjection totals = mock(ToDoStatisticsProjection.class);
+        when(totals.getTotalDone()).thenReturn(3L);
+        when(totals.getTotalDoneSeconds()).thenReturn(390L);
+        when(totals.getTotalLowDone()).thenReturn(2L);
+        when(totals.getTotalLowDoneSeconds()).thenReturn(240L);
+        when(totals.getTotalHighDone()).thenReturn(1L);
+        when(totals.getTotalHighDoneSeconds()).thenReturn(150L);
+        when(repository.computeStatistics()).thenReturn(totals);
+
+        // Act
+        ToDoStatistics stats = service.geToDoStatistics();
+
+        // Assert
+        assertEquals(3, stats.getTotalDone());
+        assertEquals(2, stats.getTotalLowDone());
+        assertEquals(0, stats.getTotalMediumDone());
+        assertEquals(1, stats.getTotalHighDone());
+        assertEquals("02:10", stats.getAverageDoneTime());
+        assertEquals("02:00", stats.getAverageLowDoneTime());
+        assertEquals("", stats.getAverageMediumDoneTime(), "No average without done To Dos");
+        assertEquals("02:30", stats.getAverageHighDoneTime());
+        verify(repository, times(1)).computeStatistics();
+    }
+
+    @Test
+    public void getAllToDos_RepeatedQueryIsCachedUntilAWrite() {
+        // Arrange
+        ToDo existing = new ToDo();
+        existing.setId(UUID.randomUUID());
+        existing.setDone(false);
+        when(repository.findByDoneTextAndPriority(any(), any(), any(), any(Pageable.class))).thenReturn(Page.empty());
+        when(repository.findById(existing.getId())).thenReturn(Optional.of(existing));
+        when(repository.markDone(eq(existing.getId()), any(Date.class), isNull())).thenReturn(1);
+        // The write bumps the data version of the repository
+        when(repository.getDataVersion()).thenReturn(4L, 4L, 5L);
+
+        // Act
+        service.getAllToDosFilterAndSort(0, 10, null, null, null, "dueDate:asc");
+        service.getAllToDosFilterAndSort(0, 10, null, null, null, "dueDate:asc");
+        service.completeToDo(existing.getId());
+        service.getAllToDosFilterAndSort(0, 10, null, null, null, "dueDate:asc");
+
+        // Assert
+        verify(repository, times(2)).findByDoneTextAndPriority(any(), any(), any(), any(Pageable.class));
+    }
+
 }
@@ -0,0 +1,196 @@
+package com.todos.backend.backend_todos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoDBRepository;
+import com.todos.backend.backend_todos.repositories.ToDoTieredRepository;
+
+public class ToDoTieredRepositoryTest {
+
+    private final ToDoDBRepository database = mock(ToDoDBRepository.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void writes_AreServedFromMemory_AndCoalescedIntoOneBatchOnShutdown() throws Exception {
+        // Arrange
+        // A long flush interval, so only close() ends the wait for a full batch
+        ToDoTieredRepository repository = new ToDoTieredRepository(database, Duration.ofSeconds(5), 100, 1000);
+        repository.start();
+
+        // Act
+        ToDo kept = repository.save(newToDo("Keep me"));
+        repository.markDone(kept.getId(), new Date(), null);
+        ToDo dropped = repository.save(newToDo("Drop me"));
+        repository.deleteById(dropped.getId(), null);
+        boolean readFromMemory = repository.findById(kept.getId()).orElseThrow().getDone();
+        repository.close();
+
+        // Assert
+        ArgumentCaptor<List<ToDo>> saved = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<UUID>> deleted = ArgumentCaptor.forClass(List.class);
+        verify(database, times(1)).writeAsIs(saved.capture(), deleted.capture());
+        assertTrue(readFromMemory);
+        assertEquals(1, saved.getValue().size(), "Two writes of one To Do should be flushed once");
+        assertEquals(kept.getId(), saved.getValue().get(0).getId());
+        assertTrue(saved.getValue().get(0).getDone());
+        assertEquals(1L, saved.getValue().get(0).getVersion());
+        assertEquals(List.of(dropped.getId()), deleted.getValue());
+        assertEquals(0, repository.pendingCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void writesAfterShutdown_AreWrittenToTheDatabaseRightAway() throws Exception {
+        // Arrange
+        ToDoTieredRepository repository = new ToDoTieredRepository(database, Duration.ofSeconds(5), 100, 1000);
+        repository.start();
+        repository.close();
+
+        // Act
+        ToDo late = repository.save(newToDo("Saved after close"));
+
+        // Assert
+        ArgumentCaptor<List<ToDo>> saved = ArgumentCaptor.forClass(List.class);
+        verify(database, times(1)).writeAsIs(saved.capture(), anyList());
+        assertEquals(late.getId(), saved.getValue().get(0).getId());
+        assertEquals(0, repository.pendingCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void concurrentWritesAfterShutdown_ReachTheDatabaseInVersionOrder() throws Exception {
+        // Arrange
+        List<Long> written = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            ((List<ToDo>) invocation.getArgument(0)).forEach(toDo -> written.add(toDo.getVersion()));
+            return null;
+        }).when(database).writeAsIs(anyList(), anyList());
+        ToDoTieredRepository repository = new ToDoTieredRepository(database, Duration.ofSeconds(5), 100, 1000);
+        repository.start();
+        repository.close();
+        UUID id = repository.save(newToDo("Toggled after close")).getId();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int w = 0; w < 4; w++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    repository.markDone(id, new Date(), null);
+                    repository.markUndone(id, null);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        for (int i = 1; i < written.size(); i++) {
+            assertTrue(written.get(i - 1) <= written.get(i), "An older state should never be written after a newer one");
+        }
+        assertEquals(repository.findById(id).orElseThrow().getVersion(), written.get(written.size() - 1));
+    }
+
+    @Test
+    public void writers_WaitWhileMaxPendingToDosAreQueued() throws Exception {
+        // Arrange
+        CountDownLatch databaseStalled = new CountDownLatch(1);
+        doAnswer(invocation -> databaseStalled.await(10, TimeUnit.SECONDS)).when(database).writeAsIs(anyList(), anyList());
+        // Batches are only taken once full, until close()
+        ToDoTieredRepository repository = new ToDoTieredRepository(database, Duration.ofSeconds(5), 2, 2);
+        repository.start();
+        for (int i = 0; i < 4; i++) {
+            // The first two are taken by the stalled flush, the next two fill the queue
+            repository.save(newToDo("Queued " + i));
+        }
+
+        // Act
+        CompletableFuture<ToDo> blocked = CompletableFuture.supplyAsync(() -> repository.save(newToDo("Over the limit")));
+        Thread.sleep(200);
+        boolean doneWhileFull = blocked.isDone();
+        databaseStalled.countDown();
+        blocked.get(10, TimeUnit.SECONDS);
+        repository.close();
+
+        // Assert
+        assertFalse(doneWhileFull, "A write should wait while the queue is full");
+        assertEquals(0, repository.pendingCount());
+        verify(database, times(3)).writeAsIs(anyList(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedBatches_AreRetried_WithoutQueueingMoreThanMaxPending() throws Exception {
+        // Arrange
+        AtomicBoolean databaseUp = new AtomicBoolean();
+        Set<UUID> written = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            if (!databaseUp.get()) {
+                throw new DataAccessResourceFailureException("Database down");
+            }
+            ((List<ToDo>) invocation.getArgument(0)).forEach(toDo -> written.add(toDo.getId()));
+            return null;
+        }).when(database).writeAsIs(anyList(), anyList());
+        ToDoTieredRepository repository = new ToDoTieredRepository(database, Duration.ofMillis(10), 2, 2);
+        repository.start();
+        Set<UUID> saved = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 4; i++) {
+            saved.add(repository.save(newToDo("Written while down " + i)).getId());
+        }
+
+        // Act
+        CompletableFuture<ToDo> blocked = CompletableFuture.supplyAsync(() -> repository.save(newToDo("Over the limit")));
+        Thread.sleep(200);
+        boolean doneWhileDown = blocked.isDone();
+        int pendingWhileDown = repository.pendingCount();
+        databaseUp.set(true);
+        saved.add(blocked.get(10, TimeUnit.SECONDS).getId());
+        repository.close();
+
+        // Assert
+        assertFalse(doneWhileDown, "A write should wait while the failed batch keeps the queue full");
+        assertTrue(pendingWhileDown <= 2, "Retries should not grow the queue past max-pending");
+        assertEquals(saved, written);
+    }
+
+    private ToDo newToDo(String text) {
+        ToDo toDo = new ToDo();
+        toDo.setText(text);
+        toDo.setPriority(Priority.MEDIUM);
+        toDo.setDone(false);
+        toDo.setCreationDate(new Date());
+        return toDo;
+    }
+}
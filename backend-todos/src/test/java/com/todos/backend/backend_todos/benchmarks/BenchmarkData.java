@@ -0,0 +1,48 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoRepository;
+
+// Reproducible To Do datasets shared by the JMH benchmarks
+final class BenchmarkData {
+    static final long DAY_MILLIS = 86_400_000L;
+    static final long START_MILLIS = 1_700_000_000_000L;
+
+    private BenchmarkData() {
+    }
+
+    // Same seed, same rows: a third done, a fifth without due date, texts "Task <n> <word>"
+    static List<ToDo> toDos(int rows) {
+        String[] words = { "report", "invoice", "meeting", "release", "review", "deploy", "backup", "email" };
+        Random random = new Random(42);
+        List<ToDo> toDos = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ToDo toDo = new ToDo();
+            toDo.setId(new UUID(random.nextLong(), random.nextLong()));
+            toDo.setText("Task " + i + " " + words[random.nextInt(words.length)]);
+            toDo.setPriority(Priority.values()[random.nextInt(3)]);
+            toDo.setCreationDate(new Date(START_MILLIS + random.nextLong(365 * DAY_MILLIS)));
+            toDo.setDueDate(random.nextInt(5) == 0 ? null : new Date(START_MILLIS + random.nextLong(400 * DAY_MILLIS)));
+            toDo.setDone(random.nextInt(3) == 0);
+            if (toDo.getDone()) {
+                toDo.setDoneDate(new Date(toDo.getCreationDate().getTime() + random.nextLong(30 * DAY_MILLIS)));
+            }
+            toDos.add(toDo);
+        }
+        return toDos;
+    }
+
+    static <R extends ToDoRepository> R load(R repository, int rows) {
+        for (ToDo toDo : toDos(rows)) {
+            repository.save(toDo);
+        }
+        return repository;
+    }
+}
@@ -0,0 +1,149 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.todos.backend.backend_todos.BackendTodosApplication;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoDBRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * GET /todos pages on a large H2 table: the former single query with a (:param IS NULL OR ...)
+ * test per filter against ToDoDBRepository, which only builds the supplied predicates. Prints the
+ * H2 plan of both SQL shapes and the median latency of a page plus its count. Run with "noindex"
+ * to drop the composite indexes of ToDo first. One row is updated before every timed run, otherwise
+ * H2 hands back the result of the previous identical query without executing it.
+ *
+ * mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.jvm.args="-Xmx3g"
+ *     -Dbenchmark.main=com.todos.backend.backend_todos.benchmarks.DBQueryPlanBenchmark
+ *     -Dbenchmark.args="[rows] [noindex]"
+ */
+public class DBQueryPlanBenchmark {
+    private static final String GENERIC_WHERE = " WHERE (? IS NULL OR done = ?) AND (? IS NULL OR LOWER(text) LIKE ?) AND (? IS NULL OR priority = ?)";
+    private static final String GENERIC_JPQL = "SELECT t FROM ToDo t WHERE (:done IS NULL OR t.done = :done) "
+        + "AND (:text IS NULL OR LOWER(t.text) LIKE LOWER(CONCAT('%', :text, '%'))) "
+        + "AND (:priority IS NULL OR t.priority = :priority)";
+
+    private record Scenario(String name, Boolean done, String text, Priority priority, Sort sort, String where, String orderBy) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean dropIndexes = args.length > 1 && args[1].equals("noindex");
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // The touch below writes through JDBC, which the Hibernate query cache would not notice
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendTodosApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties("spring.datasource.url=jdbc:h2:mem:plans", "logging.level.root=WARN",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false")
+            .run();
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        ToDoDBRepository repository = context.getBean(ToDoDBRepository.class);
+        EntityManagerFactory entityManagerFactory = context.getBean(EntityManagerFactory.class);
+
+        long start = System.nanoTime();
+        jdbc.update("INSERT INTO to_do (id, creation_date, due_date, done_date, text, done, priority, version) "
+            + "SELECT RANDOM_UUID(), DATEADD('MINUTE', X, TIMESTAMP '2024-01-01 00:00:00'), "
+            + "CASE WHEN MOD(X, 5) = 0 THEN NULL ELSE DATEADD('HOUR', MOD(X * 7919, 9600), TIMESTAMP '2024-01-01 00:00:00') END, "
+            + "CASE WHEN MOD(X, 3) = 0 THEN DATEADD('MINUTE', X + 90, TIMESTAMP '2024-01-01 00:00:00') END, "
+            + "CONCAT('Task ', X, CASE MOD(X, 8) WHEN 0 THEN ' invoice' ELSE ' report' END), MOD(X, 3) = 0, MOD(X * 31, 3), 0 "
+            + "FROM SYSTEM_RANGE(1, ?)", rows);
+        if (dropIndexes) {
+            jdbc.execute("DROP INDEX idx_to_do_done_priority_due_date");
+            jdbc.execute("DROP INDEX idx_to_do_done_priority_due_date_desc");
+            jdbc.execute("DROP INDEX idx_to_do_done_creation_date");
+            jdbc.execute("DROP INDEX idx_to_do_priority_creation_date");
+        }
+        jdbc.execute("ANALYZE");
+        UUID touched = jdbc.queryForObject("SELECT id FROM to_do LIMIT 1", UUID.class);
+        Runnable touch = () -> jdbc.update("UPDATE to_do SET done_date = done_date WHERE id = ?", touched);
+        System.out.printf("%d rows inserted in %.1f s, indexes %s%n%n", rows, (System.nanoTime() - start) / 1e9, dropIndexes ? "dropped" : "kept");
+
+        // Specific SQL as generated for ToDoDBRepository, the generic query keeps the order requested by the client
+        List<Scenario> scenarios = List.of(
+            new Scenario("done + priority, by due date", false, null, Priority.HIGH, Sort.by("dueDate"),
+                " WHERE done = ? AND priority = ?", " ORDER BY done, priority, due_date NULLS FIRST, id NULLS FIRST"),
+            new Scenario("done + priority, by due date desc", false, null, Priority.HIGH, Sort.by(Sort.Order.desc("dueDate")),
+                " WHERE done = ? AND priority = ?", " ORDER BY done, priority, due_date DESC NULLS LAST, id DESC NULLS LAST"),
+            new Scenario("done, default order", false, null, null, Sort.unsorted(),
+                " WHERE done = ?", " ORDER BY done, creation_date NULLS FIRST, id NULLS FIRST"),
+            new Scenario("priority, default order", null, null, Priority.LOW, Sort.unsorted(),
+                " WHERE priority = ?", " ORDER BY priority, creation_date NULLS FIRST, id NULLS FIRST"),
+            new Scenario("text, default order", null, "invoice", null, Sort.unsorted(),
+                " WHERE LOWER(text) LIKE ?", " ORDER BY creation_date NULLS FIRST, id NULLS FIRST"));
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        for (Scenario scenario : scenarios) {
+            System.out.println("== " + scenario.name());
+            Object[] genericParameters = { scenario.done(), scenario.done(), scenario.text(), like(scenario.text()), ordinal(scenario.priority()), ordinal(scenario.priority()) };
+            Object[] specificParameters = Arrays.stream(new Object[] { scenario.done(), like(scenario.text()), ordinal(scenario.priority()) })
+                .filter(value -> value != null).toArray();
+            String genericOrder = scenario.sort().isSorted() ? " ORDER BY due_date " + scenario.sort().iterator().next().getDirection() : "";
+            System.out.println("generic page plan:  " + plan(jdbc, "SELECT * FROM to_do" + GENERIC_WHERE + genericOrder + " LIMIT 10", genericParameters));
+            System.out.println("generic count plan: " + plan(jdbc, "SELECT COUNT(*) FROM to_do" + GENERIC_WHERE, genericParameters));
+            String specificPageSql = "SELECT * FROM to_do" + scenario.where() + scenario.orderBy() + " LIMIT 10";
+            System.out.println("specific page plan:  " + plan(jdbc, specificPageSql, specificParameters));
+            System.out.println("specific count plan: " + plan(jdbc, "SELECT COUNT(*) FROM to_do" + scenario.where(), specificParameters));
+
+            double generic = medianMillis(touch, () -> {
+                TypedQuery<ToDo> page = entityManager.createQuery(GENERIC_JPQL + (scenario.sort().isSorted() ? " ORDER BY t.dueDate " + scenario.sort().iterator().next().getDirection() : ""), ToDo.class);
+                TypedQuery<Long> count = entityManager.createQuery(GENERIC_JPQL.replace("SELECT t ", "SELECT COUNT(t) "), Long.class);
+                for (TypedQuery<?> query : List.of(page, count)) {
+                    query.setParameter("done", scenario.done()).setParameter("text", scenario.text()).setParameter("priority", scenario.priority());
+                }
+                List<ToDo> content = page.setMaxResults(10).getResultList();
+                entityManager.clear();
+                return content.size() + count.getSingleResult();
+            });
+            double specific = medianMillis(touch, () -> repository.findByDoneTextAndPriority(
+                scenario.done(), scenario.text(), scenario.priority(), PageRequest.of(0, 10, scenario.sort())).getTotalElements());
+            double specificPage = medianMillis(touch, () -> jdbc.queryForList(specificPageSql, specificParameters));
+            System.out.printf("page + count: generic %.2f ms, specific %.2f ms (page SQL alone %.2f ms)%n%n", generic, specific, specificPage);
+        }
+        entityManager.close();
+        context.close();
+        System.exit(0);
+    }
+
+    private static String plan(JdbcTemplate jdbc, String sql, Object[] parameters) {
+        return jdbc.queryForObject("EXPLAIN " + sql, String.class, parameters).replaceAll("\\s+", " ");
+    }
+
+    private static String like(String text) {
+        return text == null ? null : "%" + text.toLowerCase() + "%";
+    }
+
+    private static Integer ordinal(Priority priority) {
+        return priority == null ? null : priority.ordinal();
+    }
+
+    // Median of 11 runs after 3 warm-up runs
+    private static double medianMillis(Runnable touch, Supplier<Object> query) {
+        for (int i = 0; i < 3; i++) {
+            query.get();
+        }
+        long[] nanos = new long[11];
+        for (int i = 0; i < nanos.length; i++) {
+            touch.run();
+            long start = System.nanoTime();
+            query.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[nanos.length / 2] / 1e6;
+    }
+}
@@ -0,0 +1,73 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoColumnarRepository;
+import com.todos.backend.backend_todos.repositories.ToDoInMemoryRepository;
+import com.todos.backend.backend_todos.repositories.ToDoRepository;
+
+/**
+ * Retained heap of a loaded repository: heap used after a full GC once the rows are saved and the
+ * generated list is dropped, minus the heap used before. One store per run, so both are measured
+ * in the same fresh JVM state. Also times two queries on the loaded store.
+ *
+ * mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.jvm.args="-Xmx3g"
+ *     -Dbenchmark.main=com.todos.backend.backend_todos.benchmarks.HeapFootprintBenchmark
+ *     -Dbenchmark.args="[memory|columnar] [rows]"
+ */
+public class HeapFootprintBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String store = args.length > 0 ? args[0] : "columnar";
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        long before = usedAfterGc();
+        List<ToDo> toDos = BenchmarkData.toDos(rows);
+        ToDoRepository repository = store.equals("memory") ? new ToDoInMemoryRepository() : new ToDoColumnarRepository();
+        long start = System.nanoTime();
+        for (ToDo toDo : toDos) {
+            repository.save(toDo);
+        }
+        long loaded = System.nanoTime();
+        toDos = null;
+        long retained = usedAfterGc() - before;
+        System.out.printf("%s: %d rows saved in %.2f s, %.1f MB retained, %.0f bytes per row%n",
+            store, rows, (loaded - start) / 1e9, retained / 1e6, (double) retained / rows);
+
+        time("text filter, first page", () -> repository.findByDoneTextAndPriority(null, "review", null, PageRequest.of(0, 10)));
+        time("done + priority, by due date", () -> repository.findByDoneTextAndPriority(false, null, Priority.HIGH, PageRequest.of(0, 10, Sort.by("dueDate"))));
+        System.exit(0);
+    }
+
+    // Median of 11 runs after 5 warm-up runs
+    private static void time(String name, Runnable query) {
+        for (int i = 0; i < 5; i++) {
+            query.run();
+        }
+        long[] nanos = new long[11];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            query.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("  %s: %.2f ms%n", name, nanos[nanos.length / 2] / 1e6);
+    }
+
+    private static long usedAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,276 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.todos.backend.backend_todos.BackendTodosApplication;
+
+/**
+ * Open-loop load generator for the /todos API with a per-endpoint latency report.
+ * Requests are scheduled at a fixed rate and each one is timed from the moment it was supposed
+ * to be sent, not from when it actually left: when the server stalls, the requests queued
+ * behind the stall are charged for the wait (coordinated omission correction, as in wrk2).
+ * The uncorrected service time is reported next to it for comparison.
+ *
+ * By default the application is started locally on a random port, with storage=memory,
+ * storage=db (H2) or storage=tiered (memory written behind to H2). With url=http://host:port
+ * an already running server is targeted instead.
+ *
+ * mvnw -Pbenchmark test-compile exec:exec
+ *     -Dbenchmark.main=com.todos.backend.backend_todos.benchmarks.LoadTestHarness
+ *     -Dbenchmark.args="rate=500 duration=30 storage=db mix=create:20,complete:10,list:60,stats:10"
+ *
+ * The report is a JSON file (report=, default target/load-test/report-[storage].json) meant to
+ * be diffed between releases.
+ */
+public class LoadTestHarness {
+
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final String[] SORTS = { "", "dueDate:asc", "dueDate:desc", "priority:desc", "priority:asc,dueDate:desc" };
+    private static final String[] TEXTS = { "report", "invoice", "ta", "deploy" };
+    private static final String[] PRIORITIES = { "LOW", "MEDIUM", "HIGH" };
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(Map.of(
+            "rate", "500",
+            "duration", "30",
+            "warmup", "5",
+            "seed", "2000",
+            "storage", "memory",
+            "mix", "create:20,complete:10,list:60,stats:10"));
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(keyValue[0], keyValue[1]);
+        }
+        // Devtools would relaunch main() in a restart class loader without our arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.get("url");
+        if (baseUrl == null) {
+            context = new SpringApplicationBuilder(BackendTodosApplication.class).run(
+                "--server.port=0",
+                "--todos.storage.mode=" + options.get("storage"),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN");
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            LoadTestHarness harness = new LoadTestHarness(baseUrl, parseMix(options.get("mix")));
+            harness.seed(Integer.parseInt(options.get("seed")));
+            int rate = Integer.parseInt(options.get("rate"));
+            harness.run(rate, Integer.parseInt(options.get("warmup")));
+            Map<String, Endpoint> endpoints = harness.run(rate, Integer.parseInt(options.get("duration")));
+
+            File report = new File(options.getOrDefault("report", "target/load-test/report-" + options.get("storage") + ".json"));
+            harness.writeReport(report, options, endpoints);
+            System.out.println("Load test report written to " + report.getAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private final String baseUrl;
+    private final Map<String, Integer> mix;
+    private final int totalWeight;
+    private final HttpClient client;
+    private final List<UUID> ids = new ArrayList<>();
+
+    private LoadTestHarness(String baseUrl, Map<String, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(TIMEOUT_SECONDS))
+            .build();
+    }
+
+    // To Dos the list, complete and stats requests work on, created through the API so any backend works
+    private void seed(int rows) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (int i = 0; i < rows; i++) {
+            HttpResponse<String> response = client.send(createRequest(i), HttpResponse.BodyHandlers.ofString());
+            ids.add(UUID.fromString(objectMapper.readTree(response.body()).get("id").asText()));
+        }
+    }
+
+    // Sends rate requests per second for the given seconds, each one on its own virtual thread
+    private Map<String, Endpoint> run(int rate, int seconds) throws InterruptedException {
+        Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+        mix.keySet().forEach(name -> endpoints.put(name, new Endpoint()));
+        long total = (long) rate * seconds;
+        long intervalNanos = 1_000_000_000L / rate;
+
+        long start = System.nanoTime();
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                long intended = start + i * intervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                String name = pick();
+                HttpRequest request = request(name, i);
+                Endpoint endpoint = endpoints.get(name);
+                senders.submit(() -> send(request, endpoint, intended));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        endpoints.values().forEach(endpoint -> endpoint.elapsedNanos = elapsed);
+        return endpoints;
+    }
+
+    private void send(HttpRequest request, Endpoint endpoint, long intended) {
+        long sent = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 400) {
+                endpoint.errors.increment();
+            }
+        } catch (Exception e) {
+            endpoint.errors.increment();
+        }
+        long done = System.nanoTime();
+        endpoint.corrected.recordValue((done - intended) / 1_000);
+        endpoint.service.recordValue((done - sent) / 1_000);
+    }
+
+    private String pick() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty mix");
+    }
+
+    private HttpRequest request(String name, long i) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (name) {
+            case "create" -> createRequest(i);
+            case "complete" -> HttpRequest.newBuilder(URI.create(baseUrl + "/todos/" + ids.get(random.nextInt(ids.size())) + "/done"))
+                .timeout(Duration.ofSeconds(TIMEOUT_SECONDS))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+            case "list" -> {
+                StringBuilder query = new StringBuilder("/todos?size=10&page=").append(random.nextInt(20));
+                query.append("&sortBy=").append(SORTS[random.nextInt(SORTS.length)]);
+                if (random.nextBoolean()) {
+                    query.append("&done=").append(random.nextBoolean());
+                }
+                if (random.nextInt(3) == 0) {
+                    query.append("&text=").append(TEXTS[random.nextInt(TEXTS.length)]);
+                }
+                if (random.nextInt(3) == 0) {
+                    query.append("&priority=").append(PRIORITIES[random.nextInt(PRIORITIES.length)]);
+                }
+                yield HttpRequest.newBuilder(URI.create(baseUrl + query))
+                    .timeout(Duration.ofSeconds(TIMEOUT_SECONDS))
+                    .GET()
+                    .build();
+            }
+            case "stats" -> HttpRequest.newBuilder(URI.create(baseUrl + "/todos/stats"))
+                .timeout(Duration.ofSeconds(TIMEOUT_SECONDS))
+                .GET()
+                .build();
+            default -> throw new IllegalArgumentException("Unknown endpoint in mix: " + name);
+        };
+    }
+
+    private HttpRequest createRequest(long i) {
+        String body = "{\"text\":\"Load task " + i + " " + TEXTS[(int) (i % TEXTS.length)] + "\",\"priority\":\""
+            + PRIORITIES[(int) (i % PRIORITIES.length)] + "\"}";
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/todos"))
+            .timeout(Duration.ofSeconds(TIMEOUT_SECONDS))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    }
+
+    private void writeReport(File file, Map<String, String> options, Map<String, Endpoint> endpoints) throws Exception {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("options", new TreeMap<>(options));
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            results.put(entry.getKey(), entry.getValue().summary());
+            System.out.printf("%-9s %s%n", entry.getKey(), entry.getValue().summary());
+        }
+        report.put("endpoints", results);
+        file.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    }
+
+    // "create:20,list:80" to an ordered map of weights
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.split(":");
+            weights.put(nameAndWeight[0].trim(), Integer.parseInt(nameAndWeight[1].trim()));
+        }
+        return weights;
+    }
+
+    private static class Endpoint {
+        // Microseconds, resized as needed, safe for concurrent recording
+        private final Histogram corrected = new ConcurrentHistogram(3);
+        private final Histogram service = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+        private long elapsedNanos;
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", corrected.getTotalCount());
+            summary.put("errors", errors.sum());
+            summary.put("throughputPerSecond", round(corrected.getTotalCount() * 1e9 / elapsedNanos));
+            summary.put("p50Ms", millis(corrected.getValueAtPercentile(50)));
+            summary.put("p95Ms", millis(corrected.getValueAtPercentile(95)));
+            summary.put("p99Ms", millis(corrected.getValueAtPercentile(99)));
+            summary.put("p999Ms", millis(corrected.getValueAtPercentile(99.9)));
+            summary.put("maxMs", millis(corrected.getMaxValue()));
+            summary.put("uncorrectedP99Ms", millis(service.getValueAtPercentile(99)));
+            return summary;
+        }
+
+        private static double millis(long micros) {
+            return round(micros / 1_000.0);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+}
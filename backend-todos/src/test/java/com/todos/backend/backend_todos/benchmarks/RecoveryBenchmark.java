@@ -0,0 +1,102 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.unit.DataSize;
+
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoInMemoryRepository;
+import com.todos.backend.backend_todos.repositories.ToDoMemoryPersistence;
+import com.todos.backend.backend_todos.repositories.ToDoMemoryPersistence.FsyncPolicy;
+
+/**
+ * Startup recovery time of the persistent in-memory repository, in two runs so the second one
+ * starts from a cold JVM like a restart would.
+ * write: saves rows with the fsync policy, takes a snapshot before the last tail rows and exits
+ * without closing, as a crash would, leaving the tail only in the log.
+ * recover: reads the directory once without building anything (snapshot and log decoding
+ * only), then recovers it into a repository, which also rebuilds the indexes.
+ *
+ * mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.jvm.args="-Xmx4g"
+ *     -Dbenchmark.main=com.todos.backend.backend_todos.benchmarks.RecoveryBenchmark
+ *     -Dbenchmark.args="write [directory] [rows] [tail rows] [fsync policy]"
+ * and then the same with -Dbenchmark.args="recover [directory]"
+ */
+public class RecoveryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "write";
+        Path directory = Paths.get(args.length > 1 ? args[1] : "target/recovery-benchmark");
+        if (mode.equals("write")) {
+            int rows = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+            int tail = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+            FsyncPolicy fsync = args.length > 4 ? FsyncPolicy.valueOf(args[4].toUpperCase()) : FsyncPolicy.INTERVAL;
+            write(directory, rows, tail, fsync);
+        } else {
+            recover(directory);
+        }
+        System.exit(0);
+    }
+
+    private static void write(Path directory, int rows, int tail, FsyncPolicy fsync) throws Exception {
+        if (Files.exists(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+        List<ToDo> toDos = BenchmarkData.toDos(rows);
+        ToDoMemoryPersistence persistence = persistence(directory, fsync);
+        ToDoInMemoryRepository repository = new ToDoInMemoryRepository(persistence);
+        repository.recover();
+
+        long start = System.nanoTime();
+        for (ToDo toDo : toDos.subList(0, rows - tail)) {
+            repository.save(toDo);
+        }
+        long written = System.nanoTime();
+        persistence.snapshot();
+        long snapshotted = System.nanoTime();
+        for (ToDo toDo : toDos.subList(rows - tail, rows)) {
+            repository.save(toDo);
+        }
+        long tailWritten = System.nanoTime();
+        System.out.printf("writes: %d rows in %.2f s, snapshot in %.2f s, %d tail rows in %.2f s, %.1f MB on disk%n",
+            rows - tail, (written - start) / 1e9, (snapshotted - written) / 1e9, tail, (tailWritten - snapshotted) / 1e9,
+            size(directory) / 1e6);
+    }
+
+    private static void recover(Path directory) throws Exception {
+        LongAdder records = new LongAdder();
+        long start = System.nanoTime();
+        persistence(directory, FsyncPolicy.NONE).open(toDo -> records.increment(), id -> records.increment(), List.of());
+        long read = System.nanoTime();
+        System.out.printf("read only: %d records in %.2f s%n", records.sum(), (read - start) / 1e9);
+
+        ToDoInMemoryRepository repository = new ToDoInMemoryRepository(persistence(directory, FsyncPolicy.NONE));
+        long recoveryStart = System.nanoTime();
+        repository.recover();
+        long recovered = System.nanoTime();
+        long rows = repository.findByDoneTextAndPriority(null, null, null, PageRequest.of(0, 1)).getTotalElements();
+        System.out.printf("recovery: %d rows in %.2f s (%.0f rows/s)%n",
+            rows, (recovered - recoveryStart) / 1e9, rows * 1e9 / (recovered - recoveryStart));
+    }
+
+    private static ToDoMemoryPersistence persistence(Path directory, FsyncPolicy fsync) {
+        return new ToDoMemoryPersistence(directory, fsync, Duration.ofMillis(10), Duration.ofDays(1), DataSize.ofMegabytes(64));
+    }
+
+    private static long size(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoInMemoryRepository;
+
+/**
+ * ToDoInMemoryRepository.findByDoneTextAndPriority for every filter combination and supported
+ * sort, on the first page and on a deep page, from 1k to 1M stored To Dos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RepositoryQueryBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    // Filters applied: done, text (a word present in one eighth of the rows), priority
+    @Param({ "none", "done", "priority", "done+priority", "text", "shortText", "done+text+priority" })
+    private String filter;
+
+    @Param({ "", "dueDate:asc", "dueDate:desc", "priority:desc", "priority:asc,dueDate:desc" })
+    private String sort;
+
+    @Param({ "0", "50" })
+    private int page;
+
+    private ToDoInMemoryRepository repository;
+    private Boolean done;
+    private String text;
+    private Priority priority;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setup() {
+        repository = BenchmarkData.load(new ToDoInMemoryRepository(), rows);
+        done = filter.contains("done") ? Boolean.FALSE : null;
+        priority = filter.contains("priority") ? Priority.HIGH : null;
+        text = filter.equals("shortText") ? "ew" : filter.contains("text") ? "invoice" : null;
+        pageRequest = PageRequest.of(page, PAGE_SIZE, toSort(sort));
+    }
+
+    @Benchmark
+    public Page<ToDo> findByDoneTextAndPriority() {
+        return repository.findByDoneTextAndPriority(done, text, priority, pageRequest);
+    }
+
+    // Same format as the sortBy request parameter
+    static Sort toSort(String sortBy) {
+        Sort sort = Sort.unsorted();
+        if (sortBy.isEmpty()) {
+            return sort;
+        }
+        for (String field : sortBy.split(",")) {
+            String[] parts = field.split(":");
+            sort = sort.and(Sort.by(Sort.Direction.fromString(parts[1]), parts[0]));
+        }
+        return sort;
+    }
+}
@@ -0,0 +1,55 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.todos.backend.backend_todos.models.ToDo;
+
+// ToDo JSON serialization with the same time zone as spring.jackson.time-zone, from one row to a 1k row page
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({ "1", "10", "100", "1000" })
+    private int rows;
+
+    private ObjectMapper objectMapper;
+    private List<ToDo> toDos;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        objectMapper = new ObjectMapper().setTimeZone(TimeZone.getTimeZone("America/Phoenix"));
+        toDos = BenchmarkData.toDos(rows);
+        json = objectMapper.writeValueAsBytes(toDos);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(toDos);
+    }
+
+    @Benchmark
+    public ToDo[] deserialize() throws Exception {
+        return objectMapper.readValue(json, ToDo[].class);
+    }
+}
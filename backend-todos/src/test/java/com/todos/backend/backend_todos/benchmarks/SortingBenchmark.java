@@ -0,0 +1,85 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoKeyset;
+import com.todos.backend.backend_todos.services.ToDoService;
+
+/**
+ * Cost of turning the sortBy parameter into a comparator (ToDoService.parseSortParameter, then
+ * ToDoKeyset.comparator, which replaced createComparatorFromSort) and of a full sort with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SortingBenchmark {
+
+    // parseSortParameter is private, a method handle keeps the call free of reflection overhead
+    private static final MethodHandle PARSE_SORT_PARAMETER = parseSortParameterHandle();
+
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    @Param({ "", "dueDate:asc", "priority:desc", "priority:asc,dueDate:desc" })
+    private String sortBy;
+
+    private ToDoService service;
+    private Sort sort;
+    private List<ToDo> toDos;
+
+    @Setup
+    public void setup() throws Throwable {
+        service = new ToDoService();
+        sort = parseSortParameter();
+        toDos = BenchmarkData.toDos(rows);
+    }
+
+    @Benchmark
+    public Sort parseSortParameter() throws Throwable {
+        return (Sort) PARSE_SORT_PARAMETER.invokeExact(service, sortBy);
+    }
+
+    @Benchmark
+    public Comparator<ToDo> buildComparator() {
+        return ToDoKeyset.comparator(sort);
+    }
+
+    @Benchmark
+    public List<ToDo> sortAll() {
+        List<ToDo> sorted = new ArrayList<>(toDos);
+        sorted.sort(ToDoKeyset.comparator(sort));
+        return sorted;
+    }
+
+    private static MethodHandle parseSortParameterHandle() {
+        try {
+            return MethodHandles.privateLookupIn(ToDoService.class, MethodHandles.lookup())
+                .findVirtual(ToDoService.class, "parseSortParameter", MethodType.methodType(Sort.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
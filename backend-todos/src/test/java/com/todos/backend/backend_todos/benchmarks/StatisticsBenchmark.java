@@ -0,0 +1,72 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.todos.backend.backend_todos.dto.ToDoStatistics;
+import com.todos.backend.backend_todos.dto.ToDoStatisticsProjection;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.ToDoInMemoryRepository;
+import com.todos.backend.backend_todos.services.ToDoService;
+
+/**
+ * GET /todos/stats without the web layer: the repository totals, the service formatting on top
+ * of them, and the write that keeps the totals up to date (completing / uncompleting a To Do).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StatisticsBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    private ToDoInMemoryRepository repository;
+    private ToDoService service;
+    private List<ToDo> toDos;
+    private int next;
+
+    @Setup
+    public void setup() {
+        toDos = BenchmarkData.toDos(rows);
+        repository = new ToDoInMemoryRepository();
+        toDos.forEach(repository::save);
+        service = new ToDoService();
+        ReflectionTestUtils.setField(service, "repository", repository);
+    }
+
+    @Benchmark
+    public ToDoStatisticsProjection computeStatistics() {
+        return repository.computeStatistics();
+    }
+
+    @Benchmark
+    public ToDoStatistics serviceStatistics() {
+        return service.geToDoStatistics();
+    }
+
+    @Benchmark
+    public ToDo toggleDone() {
+        ToDo toDo = repository.findById(toDos.get(next++ % toDos.size()).getId()).orElseThrow();
+        toDo.setDone(!toDo.getDone());
+        toDo.setDoneDate(toDo.getDone() ? new Date(toDo.getCreationDate().getTime() + 60_000L) : null);
+        return repository.save(toDo);
+    }
+}
@@ -0,0 +1,87 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.models.ToDo;
+import com.todos.backend.backend_todos.repositories.BoundedTopK;
+
+/**
+ * Compares the previous collect-and-sort pagination with the bounded top-K selection
+ * used by the in-memory repository when no ordered index applies (text filters).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKPaginationBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final Comparator<ToDo> BY_DUE_DATE = Comparator
+        .comparing(ToDo::getDueDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(ToDo::getId);
+
+    @Param({ "100000" })
+    private int rows;
+
+    @Param({ "0", "100", "10000", "50000" })
+    private int offset;
+
+    private List<ToDo> matches;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        matches = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ToDo toDo = new ToDo();
+            toDo.setId(new UUID(random.nextLong(), random.nextLong()));
+            toDo.setText("Task " + i);
+            toDo.setPriority(Priority.values()[random.nextInt(3)]);
+            toDo.setDone(false);
+            toDo.setCreationDate(new Date(random.nextLong(1_000_000_000L)));
+            toDo.setDueDate(random.nextInt(5) == 0 ? null : new Date(random.nextLong(1_000_000_000L)));
+            matches.add(toDo);
+        }
+    }
+
+    @Benchmark
+    public List<ToDo> collectAndSort() {
+        List<ToDo> sorted = matches.stream()
+            .sorted(BY_DUE_DATE)
+            .collect(Collectors.toList());
+        int start = Math.min(offset, sorted.size());
+        int end = Math.min(start + PAGE_SIZE, sorted.size());
+        return new ArrayList<>(sorted.subList(start, end));
+    }
+
+    @Benchmark
+    public List<ToDo> boundedTopK() {
+        BoundedTopK<ToDo> topK = new BoundedTopK<>(BoundedTopK.capacityFor(offset, PAGE_SIZE), BY_DUE_DATE);
+        for (ToDo toDo : matches) {
+            topK.offer(toDo);
+        }
+        return topK.page(offset, PAGE_SIZE);
+    }
+}
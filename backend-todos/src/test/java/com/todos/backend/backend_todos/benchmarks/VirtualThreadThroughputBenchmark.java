@@ -0,0 +1,136 @@
+package com.todos.backend.backend_todos.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.todos.backend.backend_todos.BackendTodosApplication;
+import com.todos.backend.backend_todos.dto.NewToDo;
+import com.todos.backend.backend_todos.models.Priority;
+import com.todos.backend.backend_todos.services.ToDoService;
+
+/**
+ * Requests/sec and latency percentiles of the whole HTTP stack, once on the Tomcat platform
+ * thread pool and once with spring.threads.virtual.enabled, at the same client concurrency.
+ * Every mode boots its own application on a random port, seeds it, warms it up and then sends
+ * a fixed mix of list (80%) and create (20%) requests from concurrency client virtual threads.
+ *
+ * mvnw -Pbenchmark test-compile exec:exec
+ *     -Dbenchmark.main=com.todos.backend.backend_todos.benchmarks.VirtualThreadThroughputBenchmark
+ *     -Dbenchmark.args="[concurrency] [requests] [seed rows]"
+ *
+ * Add -Djdk.tracePinnedThreads=short to the JVM to print any virtual thread pinned while blocking.
+ */
+public class VirtualThreadThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int seedRows = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        // Devtools would relaunch main() in a restart class loader without our arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        Result platform = run(false, concurrency, requests, seedRows);
+        Result virtual = run(true, concurrency, requests, seedRows);
+
+        System.out.printf("%nconcurrency=%d requests=%d seed rows=%d%n", concurrency, requests, seedRows);
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "mode", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+        platform.print("platform");
+        virtual.print("virtual");
+        System.exit(0);
+    }
+
+    private static Result run(boolean virtualThreads, int concurrency, int requests, int seedRows) throws Exception {
+        // Command line arguments, so they win over application.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendTodosApplication.class)
+            .run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN");
+        try {
+            ToDoService service = context.getBean(ToDoService.class);
+            for (int i = 0; i < seedRows; i++) {
+                service.createToDo(newToDo(i));
+            }
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+            load(client, baseUrl, concurrency, Math.max(concurrency, requests / 10), seedRows);
+            return load(client, baseUrl, concurrency, requests, seedRows);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result load(HttpClient client, String baseUrl, int concurrency, int requests, int seedRows) throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        int pages = Math.max(1, seedRows / 10);
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        HttpRequest request = random.nextInt(5) == 0
+                            ? HttpRequest.newBuilder(URI.create(baseUrl + "/todos"))
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString("{\"text\":\"Benchmark task " + i + "\",\"priority\":\"MEDIUM\"}"))
+                                .build()
+                            : HttpRequest.newBuilder(URI.create(baseUrl + "/todos?size=10&sortBy=dueDate:asc&page=" + random.nextInt(pages)))
+                                .GET()
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - sent;
+                    }
+                    return null;
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new Result(requests * 1e9 / elapsed, percentile(latencies, 0.50), percentile(latencies, 0.99),
+            latencies[latencies.length - 1], errors.get());
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static NewToDo newToDo(int i) {
+        NewToDo toDo = new NewToDo();
+        toDo.setText("Seeded task " + i);
+        toDo.setPriority(Priority.values()[i % 3]);
+        return toDo;
+    }
+
+    private record Result(double throughput, long p50, long p99, long max, int errors) {
+        void print(String mode) {
+            System.out.printf("%-10s %12.0f %10.2f %10.2f %10.2f %8d%n", mode, throughput, p50 / 1e6, p99 / 1e6, max / 1e6, errors);
+        }
+    }
+}